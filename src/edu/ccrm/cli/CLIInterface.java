@@ -1,5 +1,6 @@
 package edu.ccrm.cli;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Scanner;
@@ -7,6 +8,7 @@ import java.util.Scanner;
 import edu.ccrm.config.AppConfig;
 import edu.ccrm.io.BackupService;
 import edu.ccrm.io.ImportExportService;
+import edu.ccrm.io.MutationJournal;
 import edu.ccrm.service.CourseService;
 import edu.ccrm.service.EnrollmentService;
 import edu.ccrm.service.StudentService;
@@ -21,6 +23,7 @@ public class CLIInterface {
     private final TranscriptService transcriptService;
     private final ImportExportService importExportService;
     private final BackupService backupService;
+    private final MutationJournal journal;
     private final MenuHandler menuHandler;
     private final AppConfig config;
 
@@ -32,8 +35,11 @@ public class CLIInterface {
         this.studentService = new StudentService();
         this.courseService = new CourseService();
         this.enrollmentService = new EnrollmentService();
+        // Keep the running GPA and credit totals right when a course's credits are edited
+        enrollmentService.trackCreditChanges(courseService);
         this.transcriptService = new TranscriptService(enrollmentService, studentService);
         this.importExportService = new ImportExportService(studentService, courseService, enrollmentService);
+        this.journal = openJournal();
 
         // The BackupService constructor needs a Path
         Path backupPath = Paths.get(config.getBackupDirectory());
@@ -65,6 +71,13 @@ public class CLIInterface {
 
         System.out.println("Thank you for using CCRM. Goodbye!");
         scanner.close();
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Error closing journal: " + e.getMessage());
+            }
+        }
     }
 
     private void displayMainMenu() {
@@ -93,6 +106,17 @@ public class CLIInterface {
         return input;
     }
 
+    // Restores the previous session's data and journals every change from here on
+    private MutationJournal openJournal() {
+        try {
+            Path journalPath = Paths.get(config.getDataDirectory(), "journal");
+            return MutationJournal.open(journalPath, studentService, courseService, enrollmentService);
+        } catch (IOException e) {
+            System.err.println("Journal unavailable, changes will not survive a restart: " + e.getMessage());
+            return null;
+        }
+    }
+
     private void initializeSampleData() {
         // ... (This method remains the same)
     }
@@ -22,6 +22,9 @@ import java.util.stream.Collectors;
  */
 public class MenuHandler {
 
+    // Archives are full copies of the data directory, so only the newest few are kept
+    private static final int ARCHIVES_TO_KEEP = 3;
+
     private final Scanner scanner;
     private final StudentService studentService;
     private final CourseService courseService;
@@ -29,6 +32,8 @@ public class MenuHandler {
     private final TranscriptService transcriptService;
     private final ImportExportService importExportService;
     private final BackupService backupService;
+    private final ReportingService reportingService;
+    private final RankingService rankingService;
     private final AppConfig config;
 
     // This constructor must match the call in CLIInterface.java
@@ -42,6 +47,8 @@ public class MenuHandler {
         this.transcriptService = transcriptService;
         this.importExportService = importExportService;
         this.backupService = backupService;
+        this.reportingService = new ReportingService(studentService, enrollmentService);
+        this.rankingService = new RankingService(studentService, enrollmentService);
         this.config = AppConfig.getInstance();
     }
 
@@ -89,12 +96,46 @@ public class MenuHandler {
 
     private void handleBackupOperations() {
         System.out.println("\n--- Backup Operations Menu ---");
-        // Your backup logic goes here
+        System.out.println("1. Incremental backup");
+        System.out.println("2. Full archive (keeps the newest " + ARCHIVES_TO_KEEP + ")");
+        System.out.print("Enter your choice: ");
+        String choice = scanner.nextLine().trim();
+        try {
+            switch (choice) {
+                // Incremental: only chunks changed since the last backup are stored
+                case "1" -> backupService.createBackup(Paths.get(config.getDataDirectory()));
+                case "2" -> {
+                    Path archive = backupService.createArchive(Paths.get(config.getDataDirectory()));
+                    backupService.verifyArchive(archive);
+                    int pruned = backupService.pruneArchives(ARCHIVES_TO_KEEP);
+                    if (pruned > 0) {
+                        System.out.println("Deleted " + pruned + " older archives");
+                    }
+                }
+                default -> {
+                    System.out.println("Invalid choice.");
+                    return;
+                }
+            }
+            backupService.showBackupDirectorySize();
+        } catch (IOException e) {
+            System.err.println("Backup failed: " + e.getMessage());
+        }
     }
 
     private void generateReports() {
         System.out.println("\n--- Reports Menu ---");
-        // Your reports logic goes here
+        // One parallel pass over all enrollments feeds every breakdown
+        reportingService.generateReport().print(System.out);
+        
+        // Rankings are maintained as grades change, so these are cheap lookups
+        System.out.println("\nTop 10 students by GPA:");
+        List<RankingService.RankedStudent> top = rankingService.topK(10);
+        for (int i = 0; i < top.size(); i++) {
+            System.out.println("  " + (i + 1) + ". " + top.get(i));
+        }
+        System.out.printf("Top 10%% GPA cutoff: %.2f (%d ranked students)%n",
+                          rankingService.percentileCutoff(10), rankingService.getRankedCount());
     }
 
     private void displayJavaInfo() {
@@ -3,20 +3,22 @@ package edu.ccrm.config;
 import edu.ccrm.domain.Student;
 import edu.ccrm.domain.Course;
 import edu.ccrm.domain.Instructor;
+import edu.ccrm.util.SnapshotList;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class DataStore {
     private static DataStore instance;
-    private List<Student> students;
-    private List<Course> courses;
-    private List<Instructor> instructors;
+    // Immutable snapshots: readers share them without copying, writers publish a new version
+    private volatile SnapshotList<Student> students;
+    private volatile SnapshotList<Course> courses;
+    private volatile SnapshotList<Instructor> instructors;
     
     private DataStore() {
-        students = new ArrayList<>();
-        courses = new ArrayList<>();
-        instructors = new ArrayList<>();
+        students = SnapshotList.empty();
+        courses = SnapshotList.empty();
+        instructors = SnapshotList.empty();
         initializeSampleData();
     }
     
@@ -32,8 +34,8 @@ public class DataStore {
         Instructor instructor1 = new Instructor("I001", "Dr. Smith", "smith@university.edu", "Computer Science", "F001");
         Instructor instructor2 = new Instructor("I002", "Prof. Johnson", "johnson@university.edu", "Mathematics", "F002");
         
-        instructors.add(instructor1);
-        instructors.add(instructor2);
+        addInstructor(instructor1);
+        addInstructor(instructor2);
         
         // Create sample courses
         try {
@@ -55,27 +57,33 @@ public class DataStore {
                     .semester(edu.ccrm.domain.Semester.SPRING)
                     .build();
             
-            courses.add(cs101);
-            courses.add(math201);
+            addCourse(cs101);
+            addCourse(math201);
             
         } catch (Exception e) {
             System.err.println("Error initializing sample data: " + e.getMessage());
         }
     }
     
-    public List<Student> getStudents() { return new ArrayList<>(students); }
-    public List<Course> getCourses() { return new ArrayList<>(courses); }
-    public List<Instructor> getInstructors() { return new ArrayList<>(instructors); }
+    // Unmodifiable snapshots; later writes never change a list already handed out
+    public List<Student> getStudents() { return students; }
+    public List<Course> getCourses() { return courses; }
+    public List<Instructor> getInstructors() { return instructors; }
     
-    public void addStudent(Student student) {
-        students.add(student);
+    // Lazy, copy-free iteration over the current contents
+    public Stream<Student> streamStudents() { return students.stream(); }
+    public Stream<Course> streamCourses() { return courses.stream(); }
+    public Stream<Instructor> streamInstructors() { return instructors.stream(); }
+    
+    public synchronized void addStudent(Student student) {
+        students = students.append(student);
     }
     
-    public void addCourse(Course course) {
-        courses.add(course);
+    public synchronized void addCourse(Course course) {
+        courses = courses.append(course);
     }
     
-    public void addInstructor(Instructor instructor) {
-        instructors.add(instructor);
+    public synchronized void addInstructor(Instructor instructor) {
+        instructors = instructors.append(instructor);
     }
 }
\ No newline at end of file
@@ -71,6 +71,9 @@ public class Course {
     public void setTitle(String title) { this.title = title; }
     public int getCredits() { return credits; }
     public void setCredits(int credits) { this.credits = credits; }
+    // Instructor, semester and department are index keys once the course is registered:
+    // change the first two through CourseService.reassignCourse; the semester is fixed,
+    // since enrollment totals are kept per semester
     public Instructor getInstructor() { return instructor; }
     public void setInstructor(Instructor instructor) { this.instructor = instructor; }
     public Semester getSemester() { return semester; }
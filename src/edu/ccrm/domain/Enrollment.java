@@ -6,7 +6,7 @@ public class Enrollment {
     private Student student;
     private Course course;
     private LocalDateTime enrollmentDate;
-    private Grade grade;
+    private volatile Grade grade;
     
     public Enrollment(Student student, Course course) {
         this.student = student;
@@ -15,6 +15,14 @@ public class Enrollment {
         this.grade = Grade.NOT_GRADED;
     }
     
+    // Restores a saved enrollment with its original date and grade
+    public Enrollment(Student student, Course course, LocalDateTime enrollmentDate, Grade grade) {
+        this.student = student;
+        this.course = course;
+        this.enrollmentDate = enrollmentDate;
+        this.grade = grade;
+    }
+    
     public void assignGrade(Grade grade) {
         this.grade = grade;
     }
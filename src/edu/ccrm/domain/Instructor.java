@@ -1,5 +1,7 @@
 package edu.ccrm.domain;
 
+import java.time.LocalDateTime;
+
 public class Instructor extends Person {
     private String department;
     private String facultyId;
@@ -10,6 +12,13 @@ public class Instructor extends Person {
         this.facultyId = facultyId;
     }
     
+    public Instructor(String id, String fullName, String email, String department, String facultyId, 
+                      LocalDateTime createdDate) {
+        super(id, fullName, email, createdDate);
+        this.department = department;
+        this.facultyId = facultyId;
+    }
+    
     public String getDepartment() { return department; }
     public String getFacultyId() { return facultyId; }
     
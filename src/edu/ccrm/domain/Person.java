@@ -7,15 +7,20 @@ public abstract class Person {
     protected String id;
     protected String fullName;
     protected String email;
-    protected boolean active;
+    protected volatile boolean active;
     protected LocalDateTime createdDate;
     
     public Person(String id, String fullName, String email) {
+        this(id, fullName, email, LocalDateTime.now());
+    }
+    
+    // Used when restoring a saved record, so the original creation time is kept
+    protected Person(String id, String fullName, String email, LocalDateTime createdDate) {
         this.id = Objects.requireNonNull(id, "ID cannot be null");
         this.fullName = Objects.requireNonNull(fullName, "Full name cannot be null");
         this.email = Objects.requireNonNull(email, "Email cannot be null");
         this.active = true;
-        this.createdDate = LocalDateTime.now();
+        this.createdDate = Objects.requireNonNull(createdDate, "Created date cannot be null");
     }
     
     // Abstract methods
@@ -1,12 +1,17 @@
 package edu.ccrm.domain;
 
-import java.util.ArrayList;
+import edu.ccrm.util.SnapshotList;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Objects;
 
 public class Student extends Person {
     private String regNo;
-    private List<Enrollment> enrollments;
+    // Immutable snapshot, replaced as a whole on every change; appending does not copy it
+    private volatile SnapshotList<Enrollment> enrollments;
     
     // Static nested class for Student Builder
     public static class Builder {
@@ -14,6 +19,7 @@ public class Student extends Person {
         private String regNo;
         private String fullName;
         private String email;
+        private LocalDateTime createdDate;
         
         public Builder id(String id) {
             this.id = id;
@@ -35,40 +41,67 @@ public class Student extends Person {
             return this;
         }
         
+        // Only needed when restoring a saved student; defaults to now
+        public Builder createdDate(LocalDateTime createdDate) {
+            this.createdDate = createdDate;
+            return this;
+        }
+        
         public Student build() {
             return new Student(this);
         }
     }
     
     private Student(Builder builder) {
-        super(builder.id, builder.fullName, builder.email);
+        super(builder.id, builder.fullName, builder.email, 
+              builder.createdDate != null ? builder.createdDate : LocalDateTime.now());
         this.regNo = Objects.requireNonNull(builder.regNo, "Registration number cannot be null");
-        this.enrollments = new ArrayList<>();
+        this.enrollments = SnapshotList.empty();
     }
     
-    public void enrollInCourse(Course course) {
-        Enrollment enrollment = new Enrollment(this, course);
-        enrollments.add(enrollment);
+    /**
+     * Attach an enrollment record owned by EnrollmentService.
+     * The student keeps a reference to the shared record, not a copy, so grades
+     * assigned through the service are visible here as well.
+     */
+    public synchronized void addEnrollment(Enrollment enrollment) {
+        if (enrollment.getStudent() != this) {
+            throw new IllegalArgumentException("Enrollment belongs to another student: " + enrollment);
+        }
+        enrollments = enrollments.append(enrollment);
     }
     
-    public void unenrollFromCourse(Course course) {
-        enrollments.removeIf(e -> e.getCourse().equals(course) && e.getStudent().equals(this));
+    public synchronized void removeEnrollment(Enrollment enrollment) {
+        enrollments = enrollments.without(enrollment);
     }
     
     public List<Enrollment> getEnrollments() {
-        return new ArrayList<>(enrollments); // Defensive copy
+        return enrollments; // Unmodifiable snapshot, no copy needed
     }
     
     public String getRegNo() { return regNo; }
     
     @Override
     public void displayProfile() {
-        System.out.println("Student Profile:");
-        System.out.println("ID: " + getId());
-        System.out.println("Reg No: " + regNo);
-        System.out.println("Name: " + getFullName());
-        System.out.println("Email: " + getEmail());
-        System.out.println("Status: " + (isActive() ? "Active" : "Inactive"));
+        StringBuilder out = new StringBuilder(128);
+        try {
+            appendProfile(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws
+        }
+        System.out.print(out);
+    }
+    
+    /**
+     * Write the profile shown by displayProfile to any Appendable, one '\n'-terminated line per field
+     */
+    public void appendProfile(Appendable out) throws IOException {
+        out.append("Student Profile:\n")
+           .append("ID: ").append(getId()).append('\n')
+           .append("Reg No: ").append(regNo).append('\n')
+           .append("Name: ").append(getFullName()).append('\n')
+           .append("Email: ").append(getEmail()).append('\n')
+           .append("Status: ").append(isActive() ? "Active" : "Inactive").append('\n');
     }
     
     @Override
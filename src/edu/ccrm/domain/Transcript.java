@@ -1,10 +1,18 @@
 package edu.ccrm.domain;
 
+import edu.ccrm.util.GPACalculator;
+import edu.ccrm.util.SnapshotList;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class Transcript {
     private Student student;
+    // The list is fixed once built, but a grade can still be assigned to any of these
+    // enrollments, so the GPA is computed on each use rather than stored
     private List<Enrollment> enrollments;
     
     public static class Builder {
@@ -28,43 +36,70 @@ public class Transcript {
     
     private Transcript(Builder builder) {
         this.student = builder.student;
-        this.enrollments = builder.enrollments != null ? 
-            builder.enrollments.stream().collect(Collectors.toList()) : List.of();
+        // Student.getEnrollments() is already an immutable snapshot and is kept as is
+        if (builder.enrollments instanceof SnapshotList) {
+            this.enrollments = builder.enrollments;
+        } else {
+            this.enrollments = builder.enrollments != null ? 
+                List.copyOf(builder.enrollments) : List.of();
+        }
     }
     
     public double calculateGPA() {
-        if (enrollments.isEmpty()) return 0.0;
-        
-        double totalPoints = enrollments.stream()
-            .filter(e -> e.getGrade() != Grade.NOT_GRADED)
-            .mapToDouble(e -> e.getGrade().getPoints() * e.getCourse().getCredits())
-            .sum();
-            
-        int totalCredits = enrollments.stream()
-            .filter(e -> e.getGrade() != Grade.NOT_GRADED)
-            .mapToInt(e -> e.getCourse().getCredits())
-            .sum();
-            
-        return totalCredits > 0 ? totalPoints / totalCredits : 0.0;
+        return GPACalculator.calculateGPA(enrollments);
     }
     
     public void display() {
-        System.out.println("=== TRANSCRIPT ===");
-        student.displayProfile();
-        System.out.println("\nCourses:");
-        System.out.println("Code\tTitle\t\tCredits\tGrade\tPoints");
-        System.out.println("----------------------------------------");
+        // Render into one buffer and print it once, instead of a printf per row
+        StringBuilder out = new StringBuilder(256 + 48 * enrollments.size());
+        try {
+            render(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws
+        }
+        System.out.print(out);
+    }
+    
+    /**
+     * Write the transcript shown by display to any Appendable, e.g. a reused StringBuilder
+     * or a Writer, without going through a Formatter
+     */
+    public void render(Appendable out) throws IOException {
+        out.append("=== TRANSCRIPT ===\n");
+        student.appendProfile(out);
+        out.append("\nCourses:\n");
+        out.append("Code\tTitle\t\tCredits\tGrade\tPoints\n");
+        out.append("----------------------------------------\n");
         
-        enrollments.forEach(e -> {
-            System.out.printf("%s\t%s\t%d\t%s\t%.1f\n",
-                e.getCourse().getCode(),
-                e.getCourse().getTitle().substring(0, Math.min(10, e.getCourse().getTitle().length())),
-                e.getCourse().getCredits(),
-                e.getGrade(),
-                e.getGradePoints());
-        });
+        // The GPA comes from the same pass, so it always matches the rows printed above it
+        double totalPoints = 0.0;
+        int totalCredits = 0;
+        for (Enrollment e : enrollments) {
+            Course course = e.getCourse();
+            String title = course.getTitle();
+            int credits = course.getCredits();
+            Grade grade = e.getGrade();
+            out.append(course.getCode().toString()).append('\t')
+               .append(title, 0, Math.min(10, title.length())).append('\t')
+               .append(Integer.toString(credits)).append('\t')
+               .append(grade.name()).append('\t');
+            appendFixed(out, grade.getPoints(), 1);
+            out.append('\n');
+            if (grade != Grade.NOT_GRADED) {
+                totalPoints += grade.getPoints() * credits;
+                totalCredits += credits;
+            }
+        }
         
-        System.out.printf("Overall GPA: %.2f\n", calculateGPA());
+        out.append("Overall GPA: ");
+        appendFixed(out, totalCredits > 0 ? totalPoints / totalCredits : 0.0, 2);
+        out.append('\n');
+    }
+    
+    // Formatter rounds the shortest decimal form of the double half-up, and so does this,
+    // so the digits match %.Nf; Math.round(value * scale) would round the binary value
+    private static void appendFixed(Appendable out, double value, int decimals) throws IOException {
+        out.append(BigDecimal.valueOf(value).setScale(decimals, RoundingMode.HALF_UP).toPlainString());
     }
     
     @Override
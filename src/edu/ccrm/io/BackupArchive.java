@@ -0,0 +1,537 @@
+package edu.ccrm.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Single-file compressed backup archive.
+ *
+ * The files under a directory are read as one continuous stream and cut into fixed-size
+ * blocks. Each block is deflated on a fork-join pool and written in order, with at most
+ * a small window of blocks in flight, so memory stays bounded and nothing is staged on
+ * disk. A manifest with every file's path, size, modification time, CRC-32 and SHA-256
+ * follows the blocks, and a fixed-size trailer points at it.
+ *
+ * Layout: magic, then blocks of [method byte, raw length, stored length, CRC-32C of the
+ * raw bytes, data], then the manifest, then the trailer (manifest offset, length and
+ * CRC-32C, block count, total raw bytes, end magic). Blocks that do not shrink are stored.
+ */
+public class BackupArchive {
+    private static final byte[] MAGIC = "CCRMARC1".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END_MAGIC = "CCRMEND1".getBytes(StandardCharsets.US_ASCII);
+    private static final int TRAILER_BYTES = 8 + 4 + 4 + 8 + 8 + END_MAGIC.length;
+    private static final int BLOCK_HEADER_BYTES = 1 + 4 + 4 + 4;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 1;
+    private static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+    
+    private final int blockSize;
+    private final int level;
+    private final ForkJoinPool pool;
+    
+    public BackupArchive() {
+        this(DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION, ForkJoinPool.commonPool());
+    }
+    
+    public BackupArchive(int blockSize, int level, ForkJoinPool pool) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        this.blockSize = blockSize;
+        this.level = level;
+        this.pool = pool;
+    }
+    
+    /**
+     * Archive every regular file under the source directory. The archive is written
+     * next to its final name and moved into place when complete.
+     */
+    public ArchiveSummary write(Path sourceDirectory, Path archive) throws IOException {
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(sourceDirectory)) {
+            files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        
+        Path temp = archive.resolveSibling(archive.getFileName() + ".tmp");
+        List<FileEntry> entries = new ArrayList<>(files.size());
+        long blocks = 0;
+        long rawBytes = 0;
+        
+        try (CountingOutputStream counter = new CountingOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp), 256 * 1024));
+             DataOutputStream out = new DataOutputStream(counter)) {
+            out.write(MAGIC);
+            
+            Deque<ForkJoinTask<byte[]>> inFlight = new ArrayDeque<>();
+            byte[] block = new byte[blockSize];
+            int filled = 0;
+            
+            for (Path file : files) {
+                String relative = sourceDirectory.relativize(file).toString().replace('\\', '/');
+                long modified = Files.getLastModifiedTime(file).toMillis();
+                CRC32 crc = new CRC32();
+                MessageDigest sha = sha256();
+                long size = 0;
+                
+                try (InputStream in = Files.newInputStream(file)) {
+                    int n;
+                    while ((n = in.read(block, filled, block.length - filled)) > 0) {
+                        crc.update(block, filled, n);
+                        sha.update(block, filled, n);
+                        filled += n;
+                        size += n;
+                        if (filled == block.length) {
+                            submit(block, filled, inFlight, out);
+                            blocks++;
+                            block = new byte[blockSize];
+                            filled = 0;
+                        }
+                    }
+                }
+                // Size is what was actually read, in case the file changed since it was listed
+                entries.add(new FileEntry(relative, size, modified, (int) crc.getValue(), sha.digest()));
+                rawBytes += size;
+            }
+            if (filled > 0) {
+                submit(block, filled, inFlight, out);
+                blocks++;
+            }
+            while (!inFlight.isEmpty()) {
+                out.write(join(inFlight.removeFirst()));
+            }
+            
+            out.flush();
+            long manifestOffset = counter.count;
+            BinaryEncoder manifest = encodeManifest(entries);
+            out.write(manifest.toBuffer().array(), 0, manifest.size());
+            out.writeLong(manifestOffset);
+            out.writeInt(manifest.size());
+            out.writeInt(manifest.crc());
+            out.writeLong(blocks);
+            out.writeLong(rawBytes);
+            out.write(END_MAGIC);
+        }
+        Files.move(temp, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new ArchiveSummary(entries.size(), blocks, rawBytes, Files.size(archive));
+    }
+    
+    /**
+     * Decompress the whole archive in memory and check every block and file checksum,
+     * without writing anything to disk
+     */
+    public ArchiveSummary verify(Path archive) throws IOException {
+        return read(archive, null);
+    }
+    
+    /**
+     * Restore the archived files under the target directory, checking them as they are written
+     */
+    public ArchiveSummary extract(Path archive, Path targetDirectory) throws IOException {
+        return read(archive, targetDirectory);
+    }
+    
+    // ---- Writing ----
+    
+    // Hands the block to the pool, first writing out the oldest block if the window is full
+    private void submit(byte[] block, int length, Deque<ForkJoinTask<byte[]>> inFlight, OutputStream out)
+            throws IOException {
+        if (inFlight.size() >= window()) {
+            out.write(join(inFlight.removeFirst()));
+        }
+        inFlight.addLast(pool.submit(() -> compress(block, length)));
+    }
+    
+    private int window() {
+        return Math.max(2, pool.getParallelism() * 2);
+    }
+    
+    private byte[] compress(byte[] raw, int length) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(raw, 0, length);
+            deflater.finish();
+            byte[] compressed = new byte[BLOCK_HEADER_BYTES + length];
+            int size = BLOCK_HEADER_BYTES;
+            while (!deflater.finished() && size < compressed.length) {
+                size += deflater.deflate(compressed, size, compressed.length - size);
+            }
+            
+            boolean stored = !deflater.finished();
+            byte[] encoded = stored ? new byte[BLOCK_HEADER_BYTES + length] : compressed;
+            int storedLength = stored ? length : size - BLOCK_HEADER_BYTES;
+            if (stored) {
+                System.arraycopy(raw, 0, encoded, BLOCK_HEADER_BYTES, length);
+            }
+            ByteBuffer.wrap(encoded)
+                      .put((byte) (stored ? STORED : DEFLATED))
+                      .putInt(length)
+                      .putInt(storedLength)
+                      .putInt(BinaryEncoder.crc(raw, 0, length));
+            return stored ? encoded : Arrays.copyOf(encoded, size);
+        } finally {
+            deflater.end();
+        }
+    }
+    
+    private static BinaryEncoder encodeManifest(List<FileEntry> entries) {
+        BinaryEncoder out = new BinaryEncoder();
+        out.writeVarint(entries.size());
+        for (FileEntry entry : entries) {
+            out.writeString(entry.path);
+            out.writeVarint(entry.size);
+            out.writeZigZag(entry.modified);
+            out.writeInt(entry.crc);
+            out.write(entry.sha256, 0, entry.sha256.length);
+        }
+        return out;
+    }
+    
+    // ---- Reading ----
+    
+    private ArchiveSummary read(Path archive, Path targetDirectory) throws IOException {
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+            long archiveSize = channel.size();
+            if (archiveSize < MAGIC.length + TRAILER_BYTES) {
+                throw new IOException(archive + " is too short to be a backup archive");
+            }
+            
+            ByteBuffer trailer = readFully(channel, archiveSize - TRAILER_BYTES, TRAILER_BYTES);
+            long manifestOffset = trailer.getLong();
+            int manifestLength = trailer.getInt();
+            int manifestCrc = trailer.getInt();
+            long blockCount = trailer.getLong();
+            long rawBytes = trailer.getLong();
+            byte[] endMagic = new byte[END_MAGIC.length];
+            trailer.get(endMagic);
+            if (!Arrays.equals(endMagic, END_MAGIC) || manifestOffset < MAGIC.length || manifestLength < 0 ||
+                    manifestOffset + manifestLength != archiveSize - TRAILER_BYTES) {
+                throw new IOException(archive + " is not a complete backup archive");
+            }
+            
+            byte[] manifestBytes = readFully(channel, manifestOffset, manifestLength).array();
+            if (BinaryEncoder.crc(manifestBytes, 0, manifestLength) != manifestCrc) {
+                throw new IOException("Backup archive manifest checksum mismatch in " + archive);
+            }
+            List<FileEntry> entries = decodeManifest(new BinaryDecoder("archive manifest", manifestBytes, 0,
+                                                                       manifestLength));
+                                                                       
+            channel.position(0);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel),
+                                                                              256 * 1024));
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException(archive + " is not a backup archive");
+            }
+            
+            FileSink sink = new FileSink(entries, targetDirectory);
+            Deque<ForkJoinTask<byte[]>> inFlight = new ArrayDeque<>();
+            long offset = MAGIC.length;
+            try {
+                for (long b = 0; b < blockCount; b++) {
+                    int method = in.readUnsignedByte();
+                    int rawLength = in.readInt();
+                    int storedLength = in.readInt();
+                    int crc = in.readInt();
+                    offset += BLOCK_HEADER_BYTES + (long) storedLength;
+                    if (rawLength < 0 || storedLength < 0 || offset > manifestOffset ||
+                            (method != STORED && method != DEFLATED)) {
+                        throw new IOException("Corrupt block " + b + " in " + archive);
+                    }
+                    byte[] data = new byte[storedLength];
+                    in.readFully(data);
+                    
+                    if (inFlight.size() >= window()) {
+                        sink.accept(join(inFlight.removeFirst()));
+                    }
+                    long index = b;
+                    inFlight.addLast(pool.submit(() -> decompress(index, method, data, rawLength, crc)));
+                }
+                while (!inFlight.isEmpty()) {
+                    sink.accept(join(inFlight.removeFirst()));
+                }
+            } catch (EOFException e) {
+                throw new IOException("Backup archive " + archive + " is truncated", e);
+            } finally {
+                sink.close();
+            }
+            if (offset != manifestOffset) {
+                throw new IOException("Backup archive " + archive + " has unexpected data before its manifest");
+            }
+            sink.finish();
+            return new ArchiveSummary(entries.size(), blockCount, rawBytes, archiveSize);
+        }
+    }
+    
+    private static byte[] decompress(long index, int method, byte[] data, int rawLength, int crc) {
+        byte[] raw;
+        if (method == STORED) {
+            raw = data;
+        } else {
+            Inflater inflater = new Inflater(true);
+            try {
+                inflater.setInput(data);
+                raw = new byte[rawLength];
+                int size = 0;
+                while (size < rawLength && !inflater.finished()) {
+                    int n = inflater.inflate(raw, size, rawLength - size);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    size += n;
+                }
+                if (size != rawLength) {
+                    throw new IllegalStateException("Block " + index + " inflates to " + size + " bytes, expected " +
+                                                    rawLength);
+                }
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Block " + index + " is not valid deflate data", e);
+            } finally {
+                inflater.end();
+            }
+        }
+        if (raw.length != rawLength || BinaryEncoder.crc(raw, 0, rawLength) != crc) {
+            throw new IllegalStateException("Block " + index + " checksum mismatch");
+        }
+        return raw;
+    }
+    
+    private static List<FileEntry> decodeManifest(BinaryDecoder in) throws IOException {
+        int count = in.readVarint();
+        List<FileEntry> entries = new ArrayList<>(Math.min(count, 1 << 16));
+        for (int i = 0; i < count; i++) {
+            String path = in.readString();
+            long size = in.readVarLong();
+            long modified = in.readZigZagLong();
+            int crc = in.readInt();
+            byte[] sha = new byte[32];
+            for (int k = 0; k < sha.length; k++) {
+                sha[k] = (byte) in.readByte();
+            }
+            entries.add(new FileEntry(path, size, modified, crc, sha));
+        }
+        in.expectEnd();
+        return entries;
+    }
+    
+    /**
+     * Walks the manifest alongside the decompressed stream, checking each file as its
+     * last byte goes by and optionally writing it out
+     */
+    private static class FileSink {
+        private final List<FileEntry> entries;
+        private final Path targetDirectory;
+        private int index = -1;
+        private long remaining;
+        private CRC32 crc;
+        private MessageDigest sha;
+        private OutputStream out;
+        
+        FileSink(List<FileEntry> entries, Path targetDirectory) throws IOException {
+            this.entries = entries;
+            this.targetDirectory = targetDirectory;
+            next();
+        }
+        
+        void accept(byte[] block) throws IOException {
+            int position = 0;
+            while (position < block.length) {
+                if (index >= entries.size()) {
+                    throw new IOException("Backup archive holds more data than its manifest lists");
+                }
+                int n = (int) Math.min(remaining, block.length - position);
+                crc.update(block, position, n);
+                sha.update(block, position, n);
+                if (out != null) {
+                    out.write(block, position, n);
+                }
+                position += n;
+                remaining -= n;
+                if (remaining == 0) {
+                    next();
+                }
+            }
+        }
+        
+        void finish() throws IOException {
+            if (index < entries.size()) {
+                throw new IOException("Backup archive ends inside " + entries.get(index).path);
+            }
+        }
+        
+        void close() throws IOException {
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+        }
+        
+        // Completes the current file, then opens every following one, stopping at the first non-empty file
+        private void next() throws IOException {
+            if (index >= 0) {
+                FileEntry done = entries.get(index);
+                close();
+                if ((int) crc.getValue() != done.crc || !Arrays.equals(sha.digest(), done.sha256)) {
+                    throw new IOException("Checksum mismatch for " + done.path);
+                }
+                if (targetDirectory != null) {
+                    Files.setLastModifiedTime(target(done), FileTime.fromMillis(done.modified));
+                }
+            }
+            index++;
+            if (index < entries.size()) {
+                FileEntry entry = entries.get(index);
+                remaining = entry.size;
+                crc = new CRC32();
+                sha = sha256();
+                if (targetDirectory != null) {
+                    Path target = target(entry);
+                    if (target.getParent() != null) {
+                        Files.createDirectories(target.getParent());
+                    }
+                    out = new BufferedOutputStream(Files.newOutputStream(target), 256 * 1024);
+                }
+                if (remaining == 0) {
+                    next();
+                }
+            }
+        }
+        
+        private Path target(FileEntry entry) throws IOException {
+            Path target = targetDirectory.resolve(entry.path).normalize();
+            if (!target.startsWith(targetDirectory.normalize())) {
+                throw new IOException("Archive path escapes the target directory: " + entry.path);
+            }
+            return target;
+        }
+    }
+    
+    // ---- Helpers ----
+    
+    private static byte[] join(ForkJoinTask<byte[]> task) throws IOException {
+        try {
+            return task.join();
+        } catch (RuntimeException e) {
+            // join() rethrows a copy of the worker's exception wrapping the original
+            Throwable cause = e.getCause() != null && e.getCause().getClass() == e.getClass() ? e.getCause() : e;
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+    
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Backup archive is truncated");
+            }
+        }
+        return buffer.flip();
+    }
+    
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required on every Java platform", e);
+        }
+    }
+    
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+        
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+    
+    private static class FileEntry {
+        private final String path;
+        private final long size;
+        private final long modified;
+        private final int crc;
+        private final byte[] sha256;
+        
+        FileEntry(String path, long size, long modified, int crc, byte[] sha256) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.crc = crc;
+            this.sha256 = sha256;
+        }
+    }
+    
+    /**
+     * What an archive holds and how well it compressed
+     */
+    public static class ArchiveSummary {
+        private final int fileCount;
+        private final long blockCount;
+        private final long rawBytes;
+        private final long archiveBytes;
+        
+        ArchiveSummary(int fileCount, long blockCount, long rawBytes, long archiveBytes) {
+            this.fileCount = fileCount;
+            this.blockCount = blockCount;
+            this.rawBytes = rawBytes;
+            this.archiveBytes = archiveBytes;
+        }
+        
+        public int getFileCount() { return fileCount; }
+        public long getBlockCount() { return blockCount; }
+        public long getRawBytes() { return rawBytes; }
+        public long getArchiveBytes() { return archiveBytes; }
+        
+        @Override
+        public String toString() {
+            return String.format("%d files, %d bytes in %d blocks, %d bytes archived (%.1f%%)",
+                                 fileCount, rawBytes, blockCount, archiveBytes,
+                                 rawBytes == 0 ? 100.0 : 100.0 * archiveBytes / rawBytes);
+        }
+    }
+}
\ No newline at end of file
@@ -1,16 +1,72 @@
 package edu.ccrm.io;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+/**
+ * Incremental, content-addressed backups.
+ *
+ * Files are cut into content-defined chunks (a gear rolling hash picks the cut points,
+ * so an insertion only changes the chunks around it) and every chunk is stored once under
+ * its SHA-256 in {@code chunks/}. A backup is just a manifest in {@code manifests/} listing
+ * each file with its size, modification time, SHA-256 and chunk hashes. Files whose size
+ * and modification time match the previous backup are not even read again.
+ *
+ * For off-site copies a backup can also be written as one self-contained compressed
+ * archive in {@code archives/}; see {@link BackupArchive}.
+ */
 public class BackupService {
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    private static final String MANIFEST_SUFFIX = ".manifest";
+    private static final String MANIFEST_HEADER = "# CCRM backup manifest v1";
+    private static final String ARCHIVE_SUFFIX = ".ccar";
+
+    // Chunk sizes: cut points are only taken between MIN and MAX, averaging about 64 KB
+    private static final int MIN_CHUNK = 16 * 1024;
+    private static final int MAX_CHUNK = 256 * 1024;
+    // Top 16 bits of the gear hash, which depend on the last 64 bytes read
+    private static final long CUT_MASK = 0xFFFFL << 48;
+    private static final long[] GEAR = new long[256];
+
+    static {
+        // Fixed seed: cut points must be identical from run to run for chunks to deduplicate
+        SplittableRandom random = new SplittableRandom(0x5EEDCCA1L);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
     private final Path backupDirectory;
+    private final Path chunkDirectory;
+    private final Path manifestDirectory;
+    private final Path archiveDirectory;
+    private final BackupArchive archiver = new BackupArchive();
 
     public BackupService(Path backupDirectory) {
         this.backupDirectory = backupDirectory;
+        this.chunkDirectory = backupDirectory.resolve("chunks");
+        this.manifestDirectory = backupDirectory.resolve("manifests");
+        this.archiveDirectory = backupDirectory.resolve("archives");
         try {
             if (!Files.exists(backupDirectory)) {
                 Files.createDirectories(backupDirectory);
@@ -19,8 +75,387 @@ public class BackupService {
             System.err.println("Failed to create backup directory: " + e.getMessage());
         }
     }
-    
-    // Add other methods here
-    // public void createBackup(...)
-    // public void showBackupDirectorySize()
+
+    /**
+     * Back up every regular file under the source directory, storing only chunks
+     * that no earlier backup already holds.
+     * @return the name of the new backup
+     */
+    public String createBackup(Path sourceDirectory) throws IOException {
+        if (!Files.isDirectory(sourceDirectory)) {
+            throw new IOException("Not a directory: " + sourceDirectory);
+        }
+        Files.createDirectories(chunkDirectory);
+        Files.createDirectories(manifestDirectory);
+
+        Map<String, FileEntry> previous = new HashMap<>();
+        String latest = latestBackup();
+        if (latest != null) {
+            for (FileEntry entry : readManifest(latest)) {
+                previous.put(entry.path, entry);
+            }
+        }
+
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(sourceDirectory)) {
+            files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+
+        BackupStats stats = new BackupStats();
+        List<FileEntry> entries = new ArrayList<>(files.size());
+        for (Path file : files) {
+            String relative = sourceDirectory.relativize(file).toString().replace('\\', '/');
+            if (relative.indexOf('\n') >= 0 || relative.indexOf('\t') >= 0) {
+                throw new IOException("Cannot back up a file whose name contains a tab or newline: " + file);
+            }
+            long size = Files.size(file);
+            long modified = Files.getLastModifiedTime(file).toMillis();
+
+            FileEntry entry = previous.get(relative);
+            if (entry != null && entry.size == size && entry.modified == modified) {
+                stats.reusedFiles++;
+            } else {
+                entry = chunkFile(file, relative, modified, stats);
+            }
+            entries.add(entry);
+            stats.bytes += entry.size;
+        }
+
+        String name = "backup-" + LocalDateTime.now().format(NAME_FORMAT);
+        writeManifest(name, entries);
+
+        System.out.println("Backup " + name + ": " + entries.size() + " files, " + stats.bytes + " bytes (" +
+                           stats.reusedFiles + " files unchanged), " + stats.newChunks + " new chunks stored (" +
+                           stats.newChunkBytes + " bytes)");
+        return name;
+    }
+
+    /**
+     * Rebuild a backup into the target directory, checking every chunk and file against its hash.
+     */
+    public void restoreBackup(String name, Path targetDirectory) throws IOException {
+        List<FileEntry> entries = readManifest(name);
+        for (FileEntry entry : entries) {
+            Path target = targetDirectory.resolve(entry.path).normalize();
+            if (!target.startsWith(targetDirectory.normalize())) {
+                throw new IOException("Manifest path escapes the target directory: " + entry.path);
+            }
+            if (target.getParent() != null) {
+                Files.createDirectories(target.getParent());
+            }
+
+            MessageDigest fileDigest = sha256();
+            try (OutputStream out = Files.newOutputStream(target)) {
+                for (String chunk : entry.chunks) {
+                    byte[] bytes = Files.readAllBytes(chunkPath(chunk));
+                    if (!hex(sha256().digest(bytes)).equals(chunk)) {
+                        throw new IOException("Backup chunk " + chunk + " is damaged");
+                    }
+                    fileDigest.update(bytes);
+                    out.write(bytes);
+                }
+            }
+            if (!hex(fileDigest.digest()).equals(entry.sha256)) {
+                throw new IOException("Restored " + entry.path + " does not match its backup checksum");
+            }
+            Files.setLastModifiedTime(target, FileTime.fromMillis(entry.modified));
+        }
+        System.out.println("Restored " + entries.size() + " files from " + name + " to " + targetDirectory);
+    }
+
+    /**
+     * Backup names, oldest first
+     */
+    public List<String> listBackups() throws IOException {
+        if (!Files.isDirectory(manifestDirectory)) {
+            return List.of();
+        }
+        try (Stream<Path> manifests = Files.list(manifestDirectory)) {
+            return manifests
+                .map(path -> path.getFileName().toString())
+                .filter(file -> file.endsWith(MANIFEST_SUFFIX))
+                .map(file -> file.substring(0, file.length() - MANIFEST_SUFFIX.length()))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Keep only the newest backups and delete the chunks no remaining backup refers to.
+     * @return the number of chunks deleted
+     */
+    public int pruneBackups(int keep) throws IOException {
+        if (keep < 1) {
+            throw new IllegalArgumentException("At least one backup must be kept");
+        }
+        List<String> backups = listBackups();
+        for (String name : backups.subList(0, Math.max(0, backups.size() - keep))) {
+            Files.deleteIfExists(manifestPath(name));
+        }
+
+        Set<String> referenced = new HashSet<>();
+        for (String name : listBackups()) {
+            readManifest(name).forEach(entry -> referenced.addAll(entry.chunks));
+        }
+
+        int deleted = 0;
+        if (Files.isDirectory(chunkDirectory)) {
+            try (Stream<Path> chunks = Files.walk(chunkDirectory)) {
+                for (Path chunk : chunks.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                    if (!referenced.contains(chunk.getFileName().toString())) {
+                        Files.delete(chunk);
+                        deleted++;
+                    }
+                }
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Write every regular file under the source directory into a single compressed archive,
+     * compressing blocks in parallel as the files are read.
+     * @return the path of the new archive
+     */
+    public Path createArchive(Path sourceDirectory) throws IOException {
+        if (!Files.isDirectory(sourceDirectory)) {
+            throw new IOException("Not a directory: " + sourceDirectory);
+        }
+        Files.createDirectories(archiveDirectory);
+        Path archive = archiveDirectory.resolve("backup-" + LocalDateTime.now().format(NAME_FORMAT) + ARCHIVE_SUFFIX);
+        BackupArchive.ArchiveSummary summary = archiver.write(sourceDirectory, archive);
+        System.out.println("Archive " + archive.getFileName() + " created: " + summary);
+        return archive;
+    }
+
+    /**
+     * Check every block and file checksum in an archive without extracting it
+     */
+    public BackupArchive.ArchiveSummary verifyArchive(Path archive) throws IOException {
+        BackupArchive.ArchiveSummary summary = archiver.verify(archive);
+        System.out.println("Archive " + archive.getFileName() + " verified: " + summary);
+        return summary;
+    }
+
+    public void restoreArchive(Path archive, Path targetDirectory) throws IOException {
+        BackupArchive.ArchiveSummary summary = archiver.extract(archive, targetDirectory);
+        System.out.println("Restored " + summary.getFileCount() + " files from " + archive.getFileName() +
+                           " to " + targetDirectory);
+    }
+
+    /**
+     * Archive files, oldest first
+     */
+    public List<Path> listArchives() throws IOException {
+        if (!Files.isDirectory(archiveDirectory)) {
+            return List.of();
+        }
+        try (Stream<Path> archives = Files.list(archiveDirectory)) {
+            return archives
+                .filter(path -> path.getFileName().toString().endsWith(ARCHIVE_SUFFIX))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Keep only the newest archives. Each archive is a full copy, so nothing else refers to them.
+     * @return the number of archives deleted
+     */
+    public int pruneArchives(int keep) throws IOException {
+        if (keep < 1) {
+            throw new IllegalArgumentException("At least one archive must be kept");
+        }
+        List<Path> archives = listArchives();
+        int deleted = 0;
+        for (Path archive : archives.subList(0, Math.max(0, archives.size() - keep))) {
+            if (Files.deleteIfExists(archive)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    public void showBackupDirectorySize() throws IOException {
+        long totalBytes = 0;
+        long chunkCount = 0;
+        try (Stream<Path> paths = Files.walk(backupDirectory)) {
+            for (Path path : paths.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                totalBytes += Files.size(path);
+                if (path.startsWith(chunkDirectory)) {
+                    chunkCount++;
+                }
+            }
+        }
+
+        List<String> backups = listBackups();
+        System.out.println("Backup directory: " + backupDirectory.toAbsolutePath());
+        System.out.println("  Size on disk: " + totalBytes + " bytes");
+        System.out.println("  Backups: " + backups.size());
+        System.out.println("  Stored chunks: " + chunkCount);
+        System.out.println("  Archives: " + listArchives().size());
+        if (!backups.isEmpty()) {
+            String latest = backups.get(backups.size() - 1);
+            long logical = readManifest(latest).stream().mapToLong(entry -> entry.size).sum();
+            System.out.println("  Latest backup: " + latest + " (" + logical + " bytes of data)");
+        }
+    }
+
+    // ---- Chunking ----
+
+    private FileEntry chunkFile(Path file, String relative, long modified, BackupStats stats)
+            throws IOException {
+        MessageDigest fileDigest = sha256();
+        List<String> chunks = new ArrayList<>();
+        byte[] chunk = new byte[MAX_CHUNK];
+        byte[] buffer = new byte[64 * 1024];
+        int length = 0;
+        long hash = 0;
+        long size = 0;
+
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                size += n;
+                fileDigest.update(buffer, 0, n);
+                for (int i = 0; i < n; i++) {
+                    byte b = buffer[i];
+                    chunk[length++] = b;
+                    hash = (hash << 1) + GEAR[b & 0xFF];
+                    if ((length >= MIN_CHUNK && (hash & CUT_MASK) == 0) || length == MAX_CHUNK) {
+                        chunks.add(storeChunk(chunk, length, stats));
+                        length = 0;
+                        hash = 0;
+                    }
+                }
+            }
+        }
+        if (length > 0) {
+            chunks.add(storeChunk(chunk, length, stats));
+        }
+        // Size is what was actually read, in case the file changed since it was listed
+        return new FileEntry(relative, size, modified, hex(fileDigest.digest()), chunks);
+    }
+
+    private String storeChunk(byte[] bytes, int length, BackupStats stats) throws IOException {
+        MessageDigest digest = sha256();
+        digest.update(bytes, 0, length);
+        String hash = hex(digest.digest());
+
+        Path target = chunkPath(hash);
+        if (!Files.exists(target)) {
+            Files.createDirectories(target.getParent());
+            // Written aside and moved into place, so a chunk file is either complete or absent
+            Path temp = Files.createTempFile(target.getParent(), hash, ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                out.write(bytes, 0, length);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            stats.newChunks++;
+            stats.newChunkBytes += length;
+        }
+        return hash;
+    }
+
+    // Two-character fan-out keeps directories small once there are millions of chunks
+    private Path chunkPath(String hash) {
+        return chunkDirectory.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    // ---- Manifests ----
+
+    private String latestBackup() throws IOException {
+        List<String> backups = listBackups();
+        return backups.isEmpty() ? null : backups.get(backups.size() - 1);
+    }
+
+    private Path manifestPath(String name) {
+        return manifestDirectory.resolve(name + MANIFEST_SUFFIX);
+    }
+
+    // One "F size modified sha256 path" line per file, followed by one "C hash" line per chunk
+    private void writeManifest(String name, List<FileEntry> entries) throws IOException {
+        Path target = manifestPath(name);
+        Path temp = manifestDirectory.resolve(name + MANIFEST_SUFFIX + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            out.write(MANIFEST_HEADER);
+            out.newLine();
+            for (FileEntry entry : entries) {
+                out.write("F\t" + entry.size + "\t" + entry.modified + "\t" + entry.sha256 + "\t" + entry.path);
+                out.newLine();
+                for (String chunk : entry.chunks) {
+                    out.write("C\t");
+                    out.write(chunk);
+                    out.newLine();
+                }
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private List<FileEntry> readManifest(String name) throws IOException {
+        Path path = manifestPath(name);
+        if (!Files.exists(path)) {
+            throw new IOException("No such backup: " + name);
+        }
+
+        List<FileEntry> entries = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            if (!MANIFEST_HEADER.equals(in.readLine())) {
+                throw new IOException("Not a backup manifest: " + path);
+            }
+            FileEntry current = null;
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.split("\t", 5);
+                if (fields[0].equals("F") && fields.length == 5) {
+                    current = new FileEntry(fields[4], Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                                            fields[3], new ArrayList<>());
+                    entries.add(current);
+                } else if (fields[0].equals("C") && fields.length == 2 && current != null) {
+                    current.chunks.add(fields[1]);
+                } else {
+                    throw new IOException("Malformed line in " + path + ": " + line);
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed manifest " + path + ": " + e.getMessage(), e);
+        }
+        return entries;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required on every Java platform", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    private static class FileEntry {
+        private final String path;
+        private final long size;
+        private final long modified;
+        private final String sha256;
+        private final List<String> chunks;
+
+        FileEntry(String path, long size, long modified, String sha256, List<String> chunks) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.sha256 = sha256;
+            this.chunks = chunks;
+        }
+    }
+
+    private static class BackupStats {
+        private long bytes;
+        private int reusedFiles;
+        private int newChunks;
+        private long newChunkBytes;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,139 @@
+package edu.ccrm.io;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Bounds-checked reader for the encodings written by BinaryEncoder.
+ * Every malformed input surfaces as an IOException naming the context and byte offset.
+ */
+class BinaryDecoder {
+    private final String context;
+    private final byte[] bytes;
+    private final int limit;
+    private int position;
+    
+    BinaryDecoder(String context, byte[] bytes, int offset, int limit) {
+        this.context = context;
+        this.bytes = bytes;
+        this.position = offset;
+        this.limit = limit;
+    }
+    
+    int readByte() throws IOException {
+        if (position >= limit) {
+            throw corrupt("unexpected end of data");
+        }
+        return bytes[position++] & 0xFF;
+    }
+    
+    boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+    
+    int readInt() throws IOException {
+        return readByte() << 24 | readByte() << 16 | readByte() << 8 | readByte();
+    }
+    
+    long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw corrupt("varint too long");
+    }
+    
+    int readVarint() throws IOException {
+        long value = readVarLong();
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw corrupt("value out of range: " + value);
+        }
+        return (int) value;
+    }
+    
+    long readZigZagLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    int readZigZag() throws IOException {
+        return (int) readZigZagLong();
+    }
+    
+    String readString() throws IOException {
+        return readUtf8(readVarint());
+    }
+    
+    String readNullableString() throws IOException {
+        int length = readVarint();
+        return length == 0 ? null : readUtf8(length - 1);
+    }
+    
+    private String readUtf8(int length) throws IOException {
+        if (length > limit - position) {
+            throw corrupt("string runs past end of data");
+        }
+        String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+    
+    LocalDateTime readTimestamp() throws IOException {
+        long seconds = readZigZagLong();
+        int nanos = readVarint();
+        try {
+            return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+        } catch (DateTimeException e) {
+            throw corrupt("bad timestamp");
+        }
+    }
+    
+    String[] readDictionary() throws IOException {
+        int size = readVarint();
+        if (size > limit - position) {
+            throw corrupt("dictionary size " + size);
+        }
+        String[] values = new String[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = readString();
+        }
+        return values;
+    }
+    
+    // Dictionary code 0 is null, code i is entry i - 1
+    <T> T lookup(T[] dictionary) throws IOException {
+        int code = readVarint();
+        if (code > dictionary.length) {
+            throw corrupt("dictionary code " + code);
+        }
+        return code == 0 ? null : dictionary[code - 1];
+    }
+    
+    void skip(int length) throws IOException {
+        if (length > limit - position) {
+            throw corrupt("skip runs past end of data");
+        }
+        position += length;
+    }
+    
+    int position() { return position; }
+    
+    int remaining() { return limit - position; }
+    
+    void expectEnd() throws IOException {
+        if (position != limit) {
+            throw corrupt((limit - position) + " trailing bytes");
+        }
+    }
+    
+    IOException corrupt(String detail) {
+        return new IOException("Corrupt " + context + " at byte " + position + ": " + detail);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,109 @@
+package edu.ccrm.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * Growable byte buffer with the compact encodings shared by the snapshot and journal
+ * formats: LEB128 varints, zig-zag for signed values, length-prefixed UTF-8 strings
+ * and timestamps as UTC epoch seconds plus nanos.
+ */
+class BinaryEncoder {
+    private byte[] bytes;
+    private int size;
+    
+    BinaryEncoder() {
+        this(4096);
+    }
+    
+    BinaryEncoder(int initialCapacity) {
+        this.bytes = new byte[Math.max(16, initialCapacity)];
+    }
+    
+    void writeByte(int b) {
+        if (size == bytes.length) {
+            bytes = Arrays.copyOf(bytes, size * 2);
+        }
+        bytes[size++] = (byte) b;
+    }
+    
+    void writeBoolean(boolean value) {
+        writeByte(value ? 1 : 0);
+    }
+    
+    // Fixed 4 bytes, big-endian; used for checksums
+    void writeInt(int value) {
+        writeByte(value >>> 24);
+        writeByte(value >>> 16);
+        writeByte(value >>> 8);
+        writeByte(value);
+    }
+    
+    // Unsigned LEB128: 7 bits per byte, high bit set while more bytes follow
+    void writeVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        writeByte((int) value);
+    }
+    
+    void writeZigZag(long value) {
+        writeVarint((value << 1) ^ (value >> 63));
+    }
+    
+    void writeString(String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(utf8.length);
+        write(utf8, 0, utf8.length);
+    }
+    
+    // Length + 1, so 0 can stand for null
+    void writeNullableString(String value) {
+        if (value == null) {
+            writeVarint(0);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(utf8.length + 1L);
+        write(utf8, 0, utf8.length);
+    }
+    
+    void writeTimestamp(LocalDateTime time) {
+        writeZigZag(time.toEpochSecond(ZoneOffset.UTC));
+        writeVarint(time.getNano());
+    }
+    
+    void write(byte[] source, int offset, int length) {
+        if (size + length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+        }
+        System.arraycopy(source, offset, bytes, size, length);
+        size += length;
+    }
+    
+    void write(BinaryEncoder other) {
+        write(other.bytes, 0, other.size);
+    }
+    
+    void reset() {
+        size = 0;
+    }
+    
+    int size() { return size; }
+    
+    int crc() { return crc(bytes, 0, size); }
+    
+    // A view over the encoded bytes, valid until the next write
+    ByteBuffer toBuffer() { return ByteBuffer.wrap(bytes, 0, size); }
+    
+    static int crc(byte[] bytes, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+}
\ No newline at end of file
@@ -3,16 +3,26 @@ package edu.ccrm.io;
 import edu.ccrm.domain.*;
 import edu.ccrm.exception.InvalidDataException;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * CSV Parser utility class for parsing CSV files into domain objects
@@ -22,6 +32,7 @@ public class CSVParser {
     
     private static final DateTimeFormatter DATE_FORMATTER = 
         DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String LINE_SEPARATOR = System.lineSeparator();
     
     // Functional interface for parsing lines
     @FunctionalInterface
@@ -30,7 +41,8 @@ public class CSVParser {
     }
     
     /**
-     * Generic method to parse CSV files using Streams
+     * Generic method to parse CSV files with the single-pass CSVTokenizer.
+     * Blank lines and '#' comments are skipped, fields are trimmed and unquoted.
      */
     public static <T> List<T> parseCSVFile(Path filePath, LineParser<T> parser, boolean skipHeader) 
             throws IOException {
@@ -39,33 +51,36 @@ public class CSVParser {
             throw new IOException("File not found: " + filePath);
         }
         
-        try (Stream<String> lines = Files.lines(filePath)) {
-            Stream<String> dataLines = skipHeader ? lines.skip(1) : lines;
+        List<T> results = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(filePath)) {
+            CSVTokenizer tokenizer = new CSVTokenizer(reader);
+            if (skipHeader) {
+                tokenizer.skipLine();
+            }
             
-            return dataLines
-                .map(line -> line.trim()) // Trim whitespace
-                .filter(line -> !line.isEmpty()) // Filter empty lines
-                .filter(line -> !line.startsWith("#")) // Filter comments
-                .map(line -> line.split(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)", -1)) // Handle quoted commas
-                .map(fields -> {
-                    // Trim each field
-                    for (int i = 0; i < fields.length; i++) {
-                        fields[i] = fields[i].trim().replaceAll("^\"|\"$", "");
-                    }
-                    return fields;
-                })
-                .map(fields -> {
-                    try {
-                        return parser.parse(fields);
-                    } catch (InvalidDataException e) {
-                        System.err.println("Error parsing line: " + String.join(",", fields) + 
-                                         " - " + e.getMessage());
-                        return null;
+            while (tokenizer.next()) {
+                String[] fields = tokenizer.getFields();
+                try {
+                    T result = parser.parse(fields);
+                    if (result != null) {
+                        results.add(result);
                     }
-                })
-                .filter(obj -> obj != null) // Filter out failed parses
-                .collect(Collectors.toList());
+                } catch (InvalidDataException e) {
+                    System.err.println("Error parsing line " + tokenizer.getLineNumber() + ": " + 
+                                     String.join(",", fields) + " - " + e.getMessage());
+                }
+            }
         }
+        return results;
+    }
+    
+    /**
+     * Parallel variant of parseCSVFile for multi-gigabyte files: memory-maps the file
+     * and parses record-aligned chunks on the common fork-join pool, keeping file order
+     */
+    public static <T> List<T> parseCSVFileParallel(Path filePath, LineParser<T> parser, boolean skipHeader) 
+            throws IOException {
+        return new MappedCSVReader().parse(filePath, parser, skipHeader);
     }
     
     /**
@@ -92,7 +107,7 @@ public class CSVParser {
     /**
      * Parse a single student from CSV fields
      */
-    private static Student parseStudent(String[] fields) throws InvalidDataException {
+    static Student parseStudent(String[] fields) throws InvalidDataException {
         if (fields.length < 5) {
             throw new InvalidDataException("Invalid student data: expected 5 fields, got " + fields.length);
         }
@@ -130,7 +145,7 @@ public class CSVParser {
     /**
      * Parse a single course from CSV fields
      */
-    private static Course parseCourse(String[] fields) throws InvalidDataException {
+    static Course parseCourse(String[] fields) throws InvalidDataException {
         if (fields.length < 6) {
             throw new InvalidDataException("Invalid course data: expected 6 fields, got " + fields.length);
         }
@@ -299,6 +314,118 @@ public class CSVParser {
         return lines;
     }
     
+    /**
+     * Stream students as CSV straight into the writer, one row at a time.
+     * Same layout as convertStudentsToCSV, without building the file as a list first.
+     * @return number of data rows written
+     */
+    public static long writeStudentsCSV(Writer out, Stream<Student> students) throws IOException {
+        out.write("ID,RegNo,FullName,Email,Status,CreatedDate");
+        out.write(LINE_SEPARATOR);
+        
+        long rows = 0;
+        for (Iterator<Student> it = students.iterator(); it.hasNext(); rows++) {
+            Student student = it.next();
+            writeCsvField(out, student.getId());
+            out.write(',');
+            writeCsvField(out, student.getRegNo());
+            out.write(',');
+            writeCsvField(out, student.getFullName());
+            out.write(',');
+            writeCsvField(out, student.getEmail());
+            out.write(',');
+            out.write(student.isActive() ? "true" : "false");
+            out.write(',');
+            DATE_FORMATTER.formatTo(student.getCreatedDate(), out);
+            out.write(LINE_SEPARATOR);
+        }
+        return rows;
+    }
+    
+    /**
+     * Stream courses as CSV straight into the writer (layout of convertCoursesToCSV)
+     */
+    public static long writeCoursesCSV(Writer out, Stream<Course> courses) throws IOException {
+        out.write("Code,Title,Credits,Department,Semester,Status,Instructor");
+        out.write(LINE_SEPARATOR);
+        
+        long rows = 0;
+        for (Iterator<Course> it = courses.iterator(); it.hasNext(); rows++) {
+            Course course = it.next();
+            writeCsvField(out, course.getCode().getCode());
+            out.write(',');
+            writeCsvField(out, course.getTitle());
+            out.write(',');
+            out.write(Integer.toString(course.getCredits()));
+            out.write(',');
+            writeCsvField(out, course.getDepartment());
+            out.write(',');
+            if (course.getSemester() != null) {
+                out.write(course.getSemester().name());
+            }
+            out.write(',');
+            out.write(course.isActive() ? "true" : "false");
+            out.write(',');
+            writeCsvField(out, course.getInstructor() != null ? course.getInstructor().getFacultyId() : "N/A");
+            out.write(LINE_SEPARATOR);
+        }
+        return rows;
+    }
+    
+    /**
+     * Stream enrollments as CSV straight into the writer (layout of convertEnrollmentsToCSV)
+     */
+    public static long writeEnrollmentsCSV(Writer out, Stream<Enrollment> enrollments) throws IOException {
+        out.write("StudentRegNo,CourseCode,EnrollmentDate,Grade");
+        out.write(LINE_SEPARATOR);
+        
+        long rows = 0;
+        for (Iterator<Enrollment> it = enrollments.iterator(); it.hasNext(); rows++) {
+            Enrollment enrollment = it.next();
+            writeCsvField(out, enrollment.getStudent().getRegNo());
+            out.write(',');
+            writeCsvField(out, enrollment.getCourse().getCode().getCode());
+            out.write(',');
+            DATE_FORMATTER.formatTo(enrollment.getEnrollmentDate(), out);
+            out.write(',');
+            out.write(enrollment.getGrade().name());
+            out.write(LINE_SEPARATOR);
+        }
+        return rows;
+    }
+    
+    /**
+     * Write a field with the same quoting rules as escapeCsvField, without building
+     * an escaped copy of the string
+     */
+    private static void writeCsvField(Writer out, String field) throws IOException {
+        if (field == null) {
+            return;
+        }
+        
+        boolean needsQuotes = false;
+        for (int i = 0; i < field.length() && !needsQuotes; i++) {
+            char c = field.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n';
+        }
+        if (!needsQuotes) {
+            out.write(field);
+            return;
+        }
+        
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < field.length(); i++) {
+            if (field.charAt(i) == '"') {
+                out.write(field, start, i + 1 - start);
+                out.write('"');
+                start = i + 1;
+            }
+        }
+        out.write(field, start, field.length() - start);
+        out.write('"');
+    }
+    
     /**
      * Escape CSV fields that contain commas or quotes
      */
@@ -316,47 +443,44 @@ public class CSVParser {
     }
     
     /**
-     * Validate CSV file structure before parsing
+     * Tokenize the file once and collect its statistics, counting records with fewer
+     * than expectedFields fields (0 for no check)
+     */
+    public static CSVProfile profileCSV(Path filePath, boolean skipHeader, int expectedFields) throws IOException {
+        CSVProfile profile = new CSVProfile(expectedFields);
+        try (BufferedReader reader = Files.newBufferedReader(filePath)) {
+            CSVTokenizer tokenizer = new CSVTokenizer(reader);
+            if (skipHeader) {
+                tokenizer.skipLine();
+            }
+            while (tokenizer.next()) {
+                profile.record(tokenizer.getFields());
+            }
+            profile.finish(tokenizer.getLinesRead(), Files.size(filePath));
+        }
+        return profile;
+    }
+    
+    /**
+     * Validate CSV file structure before parsing, using the same tokenizer as the import.
+     * Importers should prefer ImportPipeline.Builder.expectedFields, which checks while importing.
      */
     public static boolean validateCSVStructure(Path filePath, int expectedFields) throws IOException {
         if (!Files.exists(filePath)) {
             return false;
         }
-        
-        try (Stream<String> lines = Files.lines(filePath)) {
-            return lines
-                .filter(line -> !line.trim().isEmpty())
-                .filter(line -> !line.startsWith("#"))
-                .map(line -> line.split(","))
-                .allMatch(fields -> fields.length >= expectedFields);
-        }
+        return profileCSV(filePath, false, expectedFields).isValid();
     }
     
     /**
-     * Get CSV file statistics using Streams
+     * Print CSV file statistics from a single scan
      */
     public static void printCSVStatistics(Path filePath) throws IOException {
         if (!Files.exists(filePath)) {
             System.out.println("File not found: " + filePath);
             return;
         }
-        
-        try (Stream<String> lines = Files.lines(filePath)) {
-            long totalLines = lines.count();
-            
-            // Reopen stream for content analysis
-            try (Stream<String> lines2 = Files.lines(filePath)) {
-                long dataLines = lines2
-                    .filter(line -> !line.trim().isEmpty())
-                    .filter(line -> !line.startsWith("#"))
-                    .count();
-                
-                System.out.println("CSV File Statistics:");
-                System.out.println("  Total lines: " + totalLines);
-                System.out.println("  Data lines: " + dataLines);
-                System.out.println("  File size: " + Files.size(filePath) + " bytes");
-            }
-        }
+        profileCSV(filePath, false, 0).printSummary(System.out);
     }
     
     /**
@@ -389,6 +513,8 @@ public class CSVParser {
     public static class AdvancedCSVParser {
         private String delimiter;
         private boolean strictMode;
+        // Scratch for parseLineWithQuotes
+        private RecordCursor lineCursor;
         
         public AdvancedCSVParser() {
             this(",", false);
@@ -401,33 +527,12 @@ public class CSVParser {
         
         public <T> List<T> parseFile(Path filePath, Function<String[], T> mapper) throws IOException {
             List<T> results = new ArrayList<>();
-            int lineNumber = 0;
             
-            try (Stream<String> lines = Files.lines(filePath)) {
-                List<String> lineList = lines.collect(Collectors.toList());
-                
-                for (String line : lineList) {
-                    lineNumber++;
-                    
-                    try {
-                        if (line.trim().isEmpty() || line.startsWith("#")) {
-                            continue; // Skip empty lines and comments
-                        }
-                        
-                        // Handle quoted fields and custom delimiters
-                        String[] fields = parseLineWithQuotes(line, delimiter);
-                        
-                        T result = mapper.apply(fields);
-                        if (result != null) {
-                            results.add(result);
-                        }
-                        
-                    } catch (Exception e) {
-                        if (strictMode) {
-                            throw new IOException("Error parsing line " + lineNumber + ": " + e.getMessage(), e);
-                        } else {
-                            System.err.println("Warning: Error parsing line " + lineNumber + ": " + e.getMessage());
-                        }
+            try (RecordCursor cursor = open(filePath)) {
+                while (cursor.next()) {
+                    T result = apply(cursor, mapper);
+                    if (result != null) {
+                        results.add(result);
                     }
                 }
             }
@@ -435,46 +540,271 @@ public class CSVParser {
             return results;
         }
         
+        /**
+         * Lazily map each record of the file. Records are read on demand, so files larger
+         * than the heap can be processed; close the stream to release the file.
+         * In strict mode a failing record ends the stream with an UncheckedIOException.
+         */
+        public <T> Stream<T> stream(Path filePath, Function<String[], T> mapper) throws IOException {
+            RecordCursor cursor = open(filePath);
+            Spliterator<T> records = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super T> action) {
+                    try {
+                        while (cursor.next()) {
+                            T result = apply(cursor, mapper);
+                            if (result != null) {
+                                action.accept(result);
+                                return true;
+                            }
+                        }
+                        return false;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            };
+            return StreamSupport.stream(records, false).onClose(() -> {
+                try {
+                    cursor.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        
+        /**
+         * Open a cursor over the file's records for callers that want to read fields
+         * without a String[] per record
+         */
+        public RecordCursor open(Path filePath) throws IOException {
+            return new RecordCursor(Files.newBufferedReader(filePath), delimiter);
+        }
+        
+        private <T> T apply(RecordCursor cursor, Function<String[], T> mapper) throws IOException {
+            try {
+                return mapper.apply(cursor.getFields());
+            } catch (Exception e) {
+                if (strictMode) {
+                    throw new IOException("Error parsing line " + cursor.getLineNumber() + ": " + e.getMessage(), e);
+                }
+                System.err.println("Warning: Error parsing line " + cursor.getLineNumber() + ": " + e.getMessage());
+                return null;
+            }
+        }
+        
         /**
          * Parse CSV line handling quoted fields and escaped characters
          */
         private String[] parseLineWithQuotes(String line, String delimiter) {
-            List<String> fields = new ArrayList<>();
-            StringBuilder currentField = new StringBuilder();
-            boolean inQuotes = false;
-            boolean escapeNext = false;
+            // One cursor per parser and delimiter, so each call only allocates the fields
+            if (lineCursor == null || !lineCursor.delimiter.equals(delimiter)) {
+                lineCursor = new RecordCursor(Reader.nullReader(), delimiter);
+            }
+            lineCursor.load(line);
+            return lineCursor.getFields();
+        }
+        
+        /**
+         * Forward-only cursor over the records of a delimited file. The read buffer, the
+         * line scratch and the field offsets are reused from record to record, so reading
+         * allocates only the strings a caller asks for.
+         * Dialect: a backslash escapes the next character, quotes toggle quoting and are
+         * dropped, blank lines and '#' comments are skipped, fields are not trimmed.
+         */
+        public static class RecordCursor implements AutoCloseable {
+            private final Reader in;
+            private final String delimiter;
+            private final char[] buffer = new char[8192];
+            private int position;
+            private int limit;
+            private boolean skipLineFeed;
+            private boolean eof;
             
-            for (int i = 0; i < line.length(); i++) {
-                char c = line.charAt(i);
-                
-                if (escapeNext) {
-                    currentField.append(c);
-                    escapeNext = false;
-                    continue;
+            // Current physical line, then the decoded fields written back over it
+            private char[] line = new char[256];
+            private int lineLength;
+            private int lineNumber;
+            private int[] fieldEnds = new int[16];
+            private int fieldCount;
+            
+            RecordCursor(Reader in, String delimiter) {
+                if (delimiter == null || delimiter.isEmpty()) {
+                    throw new IllegalArgumentException("Delimiter must not be empty");
                 }
-                
-                if (c == '\\') {
-                    escapeNext = true;
-                    continue;
+                this.in = in;
+                this.delimiter = delimiter;
+            }
+            
+            /**
+             * Advance to the next record.
+             * @return false once the input is exhausted
+             */
+            public boolean next() throws IOException {
+                while (readLine()) {
+                    if (!isBlankOrComment()) {
+                        parse();
+                        return true;
+                    }
                 }
-                
-                if (c == '"') {
-                    inQuotes = !inQuotes;
-                    continue;
+                fieldCount = 0;
+                return false;
+            }
+            
+            /** Physical line number of the current record, counting from 1 */
+            public int getLineNumber() { return lineNumber; }
+            
+            public int getFieldCount() { return fieldCount; }
+            
+            public String getField(int index) {
+                int start = fieldStart(index);
+                return new String(line, start, fieldEnds[index] - start);
+            }
+            
+            /**
+             * Current field as a view over the scratch buffer; only valid until next()
+             */
+            public CharSequence getFieldView(int index) {
+                int start = fieldStart(index);
+                return CharBuffer.wrap(line, start, fieldEnds[index] - start);
+            }
+            
+            /** Copy of the current record's fields */
+            public String[] getFields() {
+                String[] fields = new String[fieldCount];
+                for (int i = 0; i < fieldCount; i++) {
+                    fields[i] = getField(i);
                 }
-                
-                if (!inQuotes && line.startsWith(delimiter, i)) {
-                    fields.add(currentField.toString());
-                    currentField.setLength(0);
-                    i += delimiter.length() - 1;
-                    continue;
+                return fields;
+            }
+            
+            @Override
+            public void close() throws IOException {
+                in.close();
+            }
+            
+            // Make the given line the current record, reusing the scratch buffers
+            void load(String text) {
+                if (text.length() > line.length) {
+                    line = new char[Math.max(text.length(), line.length * 2)];
+                }
+                text.getChars(0, text.length(), line, 0);
+                lineLength = text.length();
+                lineNumber++;
+                parse();
+            }
+            
+            private int fieldStart(int index) {
+                if (index < 0 || index >= fieldCount) {
+                    throw new IndexOutOfBoundsException("Field " + index + " of " + fieldCount);
+                }
+                return index == 0 ? 0 : fieldEnds[index - 1];
+            }
+            
+            // Reads up to \n, \r or \r\n, the same line breaks Files.lines() splits on
+            private boolean readLine() throws IOException {
+                lineLength = 0;
+                boolean any = false;
+                while (true) {
+                    if (position == limit) {
+                        if (eof || !fill()) {
+                            if (any) {
+                                lineNumber++;
+                            }
+                            return any;
+                        }
+                    }
+                    char c = buffer[position++];
+                    if (skipLineFeed) {
+                        skipLineFeed = false;
+                        if (c == '\n') {
+                            continue;
+                        }
+                    }
+                    if (c == '\n' || c == '\r') {
+                        skipLineFeed = c == '\r';
+                        lineNumber++;
+                        return true;
+                    }
+                    any = true;
+                    if (lineLength == line.length) {
+                        line = Arrays.copyOf(line, lineLength * 2);
+                    }
+                    line[lineLength++] = c;
+                }
+            }
+            
+            private boolean fill() throws IOException {
+                int n = in.read(buffer, 0, buffer.length);
+                if (n <= 0) {
+                    eof = true;
+                    return false;
                 }
+                position = 0;
+                limit = n;
+                return true;
+            }
+            
+            private boolean isBlankOrComment() {
+                if (lineLength > 0 && line[0] == '#') {
+                    return true;
+                }
+                for (int i = 0; i < lineLength; i++) {
+                    if (line[i] > ' ') {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            
+            // Decodes in place: the output never runs ahead of the input, since quotes
+            // and escapes are dropped and delimiters are consumed
+            private void parse() {
+                int out = 0;
+                fieldCount = 0;
+                boolean inQuotes = false;
+                boolean escapeNext = false;
+                char first = delimiter.charAt(0);
                 
-                currentField.append(c);
+                for (int i = 0; i < lineLength; i++) {
+                    char c = line[i];
+                    
+                    if (escapeNext) {
+                        line[out++] = c;
+                        escapeNext = false;
+                    } else if (c == '\\') {
+                        escapeNext = true;
+                    } else if (c == '"') {
+                        inQuotes = !inQuotes;
+                    } else if (!inQuotes && c == first && delimiterAt(i)) {
+                        endField(out);
+                        i += delimiter.length() - 1;
+                    } else {
+                        line[out++] = c;
+                    }
+                }
+                endField(out);
+            }
+            
+            private boolean delimiterAt(int i) {
+                int n = delimiter.length();
+                if (i + n > lineLength) {
+                    return false;
+                }
+                for (int k = 1; k < n; k++) {
+                    if (line[i + k] != delimiter.charAt(k)) {
+                        return false;
+                    }
+                }
+                return true;
             }
             
-            fields.add(currentField.toString());
-            return fields.toArray(new String[0]);
+            private void endField(int end) {
+                if (fieldCount == fieldEnds.length) {
+                    fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+                }
+                fieldEnds[fieldCount++] = end;
+            }
         }
     }
     
@@ -0,0 +1,132 @@
+package edu.ccrm.io;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Structure and content statistics for a CSV file, gathered record by record while the
+ * file is tokenized for some other purpose, so profiling never costs an extra read.
+ * Fields are counted as the tokenizer returns them, i.e. trimmed and unquoted;
+ * an empty field counts as null.
+ */
+public class CSVProfile {
+    private final int expectedFields;
+    private long lines;
+    private long bytes;
+    private long records;
+    private long shortRecords;
+    private int minFields = Integer.MAX_VALUE;
+    private int maxFields;
+    
+    // Per column, grown as wider records appear
+    private long[] present = new long[8];
+    private long[] nulls = new long[8];
+    private long[] totalLength = new long[8];
+    private int[] minLength = new int[8];
+    private int[] maxLength = new int[8];
+    private int columns;
+    
+    /**
+     * @param expectedFields records with fewer fields are counted as short; 0 disables the check
+     */
+    public CSVProfile(int expectedFields) {
+        this.expectedFields = expectedFields;
+    }
+    
+    /**
+     * Add one record.
+     * @return false if the record has fewer fields than expected
+     */
+    boolean record(String[] fields) {
+        records++;
+        minFields = Math.min(minFields, fields.length);
+        maxFields = Math.max(maxFields, fields.length);
+        if (fields.length > present.length) {
+            grow(fields.length);
+        }
+        for (int i = 0; i < fields.length; i++) {
+            int length = fields[i].length();
+            present[i]++;
+            totalLength[i] += length;
+            if (length == 0) {
+                nulls[i]++;
+            }
+            if (i >= columns || length < minLength[i]) {
+                minLength[i] = length;
+            }
+            if (length > maxLength[i]) {
+                maxLength[i] = length;
+            }
+            columns = Math.max(columns, i + 1);
+        }
+        if (fields.length < expectedFields) {
+            shortRecords++;
+            return false;
+        }
+        return true;
+    }
+    
+    void finish(long lines, long bytes) {
+        this.lines = lines;
+        this.bytes = bytes;
+    }
+    
+    private void grow(int width) {
+        int size = Math.max(width, present.length * 2);
+        present = Arrays.copyOf(present, size);
+        nulls = Arrays.copyOf(nulls, size);
+        totalLength = Arrays.copyOf(totalLength, size);
+        minLength = Arrays.copyOf(minLength, size);
+        maxLength = Arrays.copyOf(maxLength, size);
+    }
+    
+    public boolean isValid() { return shortRecords == 0; }
+    
+    public int getExpectedFields() { return expectedFields; }
+    public long getLineCount() { return lines; }
+    public long getByteCount() { return bytes; }
+    public long getRecordCount() { return records; }
+    public long getShortRecordCount() { return shortRecords; }
+    public int getMinFields() { return records == 0 ? 0 : minFields; }
+    public int getMaxFields() { return maxFields; }
+    public int getColumnCount() { return columns; }
+    
+    /** Records that have this column at all */
+    public long getPresentCount(int column) { return present[checkColumn(column)]; }
+    public long getNullCount(int column) { return nulls[checkColumn(column)]; }
+    public int getMinLength(int column) { return minLength[checkColumn(column)]; }
+    public int getMaxLength(int column) { return maxLength[checkColumn(column)]; }
+    
+    public double getMeanLength(int column) {
+        checkColumn(column);
+        return present[column] == 0 ? 0 : (double) totalLength[column] / present[column];
+    }
+    
+    private int checkColumn(int column) {
+        if (column < 0 || column >= columns) {
+            throw new IndexOutOfBoundsException("Column " + column + " of " + columns);
+        }
+        return column;
+    }
+    
+    public void printSummary(PrintStream out) {
+        out.println("CSV File Statistics:");
+        out.println("  Total lines: " + lines);
+        out.println("  Data records: " + records);
+        out.println("  File size: " + bytes + " bytes");
+        out.println("  Fields per record: " + getMinFields() + "-" + maxFields);
+        if (expectedFields > 0) {
+            out.println("  Records with fewer than " + expectedFields + " fields: " + shortRecords);
+        }
+        for (int i = 0; i < columns; i++) {
+            out.printf("  Column %d: %d present, %d null, length %d-%d (mean %.1f)%n",
+                       i + 1, present[i], nulls[i], minLength[i], maxLength[i], getMeanLength(i));
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("CSVProfile{lines=%d, records=%d, bytes=%d, columns=%d, short=%d}",
+                           lines, records, bytes, columns, shortRecords);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,246 @@
+package edu.ccrm.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single-pass RFC 4180 record tokenizer.
+ * A hand-written state machine reads characters straight from the Reader and handles
+ * quoted fields, doubled-quote escapes ("") and line breaks inside quotes without any
+ * regular expressions. The char buffer, the field builder and the field list are reused
+ * for every record, so the only per-record allocation is the field strings themselves.
+ * 
+ * Blank records and records whose first non-blank character is '#' are skipped.
+ * Whitespace around unquoted fields and outside quotes is trimmed.
+ */
+public class CSVTokenizer {
+    private static final int EOF = -1;
+    
+    private final Reader reader;
+    private final char delimiter;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    
+    // Reused across records
+    private final StringBuilder field = new StringBuilder(64);
+    private final List<String> fields = new ArrayList<>();
+    private int lineNumber;
+    private int recordLine;
+    private final int firstLineNumber;
+    private int lastChar = EOF;
+    
+    public CSVTokenizer(Reader reader) {
+        this(reader, ',');
+    }
+    
+    public CSVTokenizer(Reader reader, char delimiter) {
+        this(reader, delimiter, 1);
+    }
+    
+    /**
+     * @param firstLineNumber line number of the first character, for readers that start mid-file
+     */
+    public CSVTokenizer(Reader reader, char delimiter, int firstLineNumber) {
+        this.reader = reader;
+        this.delimiter = delimiter;
+        this.lineNumber = firstLineNumber;
+        this.firstLineNumber = firstLineNumber;
+    }
+    
+    /**
+     * Advance to the next data record.
+     * @return false once the input is exhausted
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            int c = peek();
+            if (c == EOF) {
+                return false;
+            }
+            recordLine = lineNumber;
+            if (readRecord()) {
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Discard the rest of the current physical line, ignoring quotes (used for header lines)
+     */
+    public void skipLine() throws IOException {
+        int c;
+        while ((c = read()) != EOF) {
+            if (c == '\n' || c == '\r') {
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                }
+                lineNumber++;
+                return;
+            }
+        }
+    }
+    
+    public int getFieldCount() {
+        return fields.size();
+    }
+    
+    public String getField(int index) {
+        return fields.get(index);
+    }
+    
+    /**
+     * Copy of the current record's fields
+     */
+    public String[] getFields() {
+        return fields.toArray(new String[0]);
+    }
+    
+    /**
+     * Physical line on which the current record starts (1-based)
+     */
+    public int getLineNumber() {
+        return recordLine;
+    }
+    
+    /**
+     * Physical lines consumed so far; once next() has returned false this is the
+     * file's line count, including a last line without a line break
+     */
+    public int getLinesRead() {
+        boolean open = lastChar != EOF && lastChar != '\n' && lastChar != '\r';
+        return lineNumber - firstLineNumber + (open ? 1 : 0);
+    }
+    
+    /**
+     * Read one record into the field list.
+     * Returns false when the record turned out to be blank or a comment.
+     */
+    private boolean readRecord() throws IOException {
+        fields.clear();
+        field.setLength(0);
+        boolean quoted = false;     // current field started with a quote
+        boolean inQuotes = false;   // currently between quotes
+        boolean blank = true;       // nothing but whitespace seen in the current field
+        
+        while (true) {
+            int c = read();
+            
+            if (inQuotes) {
+                if (c == EOF) {
+                    // Unterminated quote: keep what was read
+                    endField(quoted);
+                    return true;
+                }
+                if (c == '"') {
+                    if (peek() == '"') {
+                        read();
+                        field.append('"');
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    if (c == '\n' || (c == '\r' && peek() != '\n')) {
+                        lineNumber++;
+                    }
+                    field.append((char) c);
+                }
+                continue;
+            }
+            
+            if (c == EOF || c == '\n' || c == '\r') {
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                }
+                if (c != EOF) {
+                    lineNumber++;
+                }
+                if (fields.isEmpty() && blank && !quoted) {
+                    return false; // blank line
+                }
+                endField(quoted);
+                return true;
+            }
+            
+            if (c == delimiter) {
+                endField(quoted);
+                quoted = false;
+                blank = true;
+                continue;
+            }
+            
+            if (c == '"' && blank && !quoted) {
+                // Opening quote; drop any whitespace before it
+                field.setLength(0);
+                quoted = true;
+                inQuotes = true;
+                blank = false;
+                continue;
+            }
+            
+            if (c == '#' && blank && fields.isEmpty()) {
+                skipLine();
+                return false; // comment line
+            }
+            
+            if (quoted) {
+                // Text after a closing quote: ignore whitespace, keep anything else
+                if (!isSpace(c)) {
+                    field.append((char) c);
+                }
+                continue;
+            }
+            
+            if (!isSpace(c)) {
+                blank = false;
+            }
+            field.append((char) c);
+        }
+    }
+    
+    private void endField(boolean quoted) {
+        if (quoted) {
+            fields.add(field.toString());
+        } else {
+            // Trim in place instead of creating an untrimmed string first
+            int start = 0;
+            int end = field.length();
+            while (start < end && isSpace(field.charAt(start))) start++;
+            while (end > start && isSpace(field.charAt(end - 1))) end--;
+            fields.add(field.substring(start, end));
+        }
+        field.setLength(0);
+    }
+    
+    // Same notion of whitespace as String.trim()
+    private static boolean isSpace(int c) {
+        return c <= ' ';
+    }
+    
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position++];
+    }
+    
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position];
+    }
+    
+    private boolean fill() throws IOException {
+        int n = reader.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = n;
+        lastChar = buffer[n - 1];
+        return true;
+    }
+}
\ No newline at end of file
@@ -1,16 +1,23 @@
 package edu.ccrm.io;
 
 import edu.ccrm.domain.*;
+import edu.ccrm.exception.DuplicateStudentException;
 import edu.ccrm.service.StudentService;
 import edu.ccrm.service.CourseService;
 import edu.ccrm.service.EnrollmentService;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class ImportExportService {
@@ -18,6 +25,8 @@ public class ImportExportService {
     private CourseService courseService;
     private EnrollmentService enrollmentService;
     private CSVParser csvParser;
+    private int importBatchSize = 500;
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
     
     public ImportExportService(StudentService studentService, CourseService courseService, 
                              EnrollmentService enrollmentService) {
@@ -27,83 +36,104 @@ public class ImportExportService {
         this.csvParser = new CSVParser();
     }
     
-    public void importStudentsFromCSV(String filename) throws IOException {
-        Path path = Paths.get(filename);
-        
-        // Use the CSVParser for more robust parsing
-        List<Student> students = CSVParser.parseStudentsFromCSV(path);
+    public ImportReport importStudentsFromCSV(String filename) throws IOException {
+        // Stream the file through the pipeline instead of loading it into a list first
+        ImportPipeline<Student> pipeline = new ImportPipeline.Builder<Student>()
+                .parser(CSVParser::parseStudent)
+                .applier(studentService::addStudent)
+                .batchSize(importBatchSize)
+                .build();
         
-        for (Student student : students) {
-            try {
-                studentService.addStudent(student);
-                System.out.println("Imported student: " + student.getFullName());
-            } catch (Exception e) {
-                System.err.println("Error importing student: " + e.getMessage());
-            }
-        }
+        ImportReport report = pipeline.run(Paths.get(filename));
+        report.printSummary(System.out);
+        return report;
     }
     
-    public void importCoursesFromCSV(String filename) throws IOException {
-        Path path = Paths.get(filename);
+    public ImportReport importCoursesFromCSV(String filename) throws IOException {
+        ImportPipeline<Course> pipeline = new ImportPipeline.Builder<Course>()
+                .parser(CSVParser::parseCourse)
+                .applier(courseService::addCourse)
+                .batchSize(importBatchSize)
+                .build();
         
-        List<Course> courses = CSVParser.parseCoursesFromCSV(path);
-        
-        for (Course course : courses) {
-            try {
-                courseService.addCourse(course);
-                System.out.println("Imported course: " + course.getTitle());
-            } catch (Exception e) {
-                System.err.println("Error importing course: " + e.getMessage());
-            }
+        ImportReport report = pipeline.run(Paths.get(filename));
+        report.printSummary(System.out);
+        return report;
+    }
+    
+    public void setImportBatchSize(int importBatchSize) {
+        if (importBatchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + importBatchSize);
         }
+        this.importBatchSize = importBatchSize;
     }
     
+    // Exports stream rows from the services into one buffered writer, so memory stays
+    // flat regardless of how many records are written
     public void exportStudentsToCSV(String filename) throws IOException {
-        Path path = Paths.get(filename);
-        List<Student> students = studentService.findAll();
-        
-        // Use CSVParser for CSV generation
-        List<String> csvLines = CSVParser.convertStudentsToCSV(students);
-        
-        Files.write(path, csvLines, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-        System.out.println("Exported " + students.size() + " students to " + filename);
+        try (Writer out = openExportWriter(filename)) {
+            long rows = CSVParser.writeStudentsCSV(out, studentService.stream());
+            System.out.println("Exported " + rows + " students to " + filename);
+        }
     }
     
     public void exportCoursesToCSV(String filename) throws IOException {
-        Path path = Paths.get(filename);
-        List<Course> courses = courseService.findAll();
-        
-        List<String> csvLines = CSVParser.convertCoursesToCSV(courses);
-        
-        Files.write(path, csvLines, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-        System.out.println("Exported " + courses.size() + " courses to " + filename);
+        try (Writer out = openExportWriter(filename)) {
+            long rows = CSVParser.writeCoursesCSV(out, courseService.stream());
+            System.out.println("Exported " + rows + " courses to " + filename);
+        }
     }
     
     public void exportEnrollmentsToCSV(String filename) throws IOException {
+        try (Writer out = openExportWriter(filename)) {
+            long rows = CSVParser.writeEnrollmentsCSV(out, enrollmentService.streamEnrollments());
+            System.out.println("Exported " + rows + " enrollments to " + filename);
+        }
+    }
+    
+    private static Writer openExportWriter(String filename) throws IOException {
         Path path = Paths.get(filename);
-        
-        // This would require additional methods to get all enrollments
-        // For now, create a simple header
-        List<String> lines = List.of("StudentID,CourseCode,EnrollmentDate,Grade");
-        Files.write(path, lines, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new BufferedWriter(new OutputStreamWriter(
+            Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, 
+                                  StandardOpenOption.WRITE), 
+            StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE);
     }
     
     /**
-     * Advanced import with validation
+     * Advanced import with validation: checks structure, profiles the file and imports
+     * it in one read, applying nothing unless every record is valid
      */
-    public void importStudentsWithValidation(String filename) throws IOException {
-        Path path = Paths.get(filename);
-        
-        // Validate CSV structure first
-        if (!CSVParser.validateCSVStructure(path, 5)) {
-            throw new IOException("Invalid CSV structure for students file");
-        }
-        
-        // Print statistics
-        CSVParser.printCSVStatistics(path);
+    public ImportReport importStudentsWithValidation(String filename) throws IOException {
+        return importStudentsWithValidation(filename, true);
+    }
+    
+    /**
+     * @param allOrNothing apply no student if any record fails the structure, parse or
+     *                     duplicate checks; otherwise import the valid records
+     */
+    public ImportReport importStudentsWithValidation(String filename, boolean allOrNothing) throws IOException {
+        // Ids already seen in this file; the validator only runs on the pipeline's parser thread
+        Set<String> fileIds = new HashSet<>();
+        ImportPipeline<Student> pipeline = new ImportPipeline.Builder<Student>()
+                .parser(CSVParser::parseStudent)
+                .validator(student -> {
+                    if (!student.isActive()) {
+                        return;
+                    }
+                    if (studentService.findStudentById(student.getId()) != null || !fileIds.add(student.getId())) {
+                        throw new DuplicateStudentException("Student with ID " + student.getId() + " already exists");
+                    }
+                })
+                .applier(studentService::addStudent)
+                .batchSize(importBatchSize)
+                .expectedFields(5)
+                .allOrNothing(allOrNothing)
+                .build();
         
-        // Then import
-        importStudentsFromCSV(filename);
+        ImportReport report = pipeline.run(Paths.get(filename));
+        report.getProfile().printSummary(System.out);
+        report.printSummary(System.out);
+        return report;
     }
     
     /**
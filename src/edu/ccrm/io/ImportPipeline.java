@@ -0,0 +1,324 @@
+package edu.ccrm.io;
+
+import edu.ccrm.exception.InvalidDataException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bounded-memory streaming import: read -> parse/validate -> apply.
+ * The reader and parser stages run on their own threads and hand records over through
+ * bounded queues, so a slow apply stage throttles reading instead of letting parsed
+ * records pile up. The calling thread takes records off the queue in batches of up to
+ * batchSize, one hand-off per batch, and applies them one at a time.
+ * Progress and failures are collected in an ImportReport rather than printed per row.
+ * 
+ * The reader stage also profiles the file (see CSVProfile) and, given expectedFields,
+ * rejects short records, so structure checks and statistics need no extra pass.
+ * In all-or-nothing mode validated records are held back until the whole file has been
+ * read, and none are applied if any record was rejected; this keeps the parsed records
+ * in memory, and only failures the validator can detect up front are caught in time.
+ */
+public class ImportPipeline<T> {
+    
+    // Hooks for the validate and apply stages
+    @FunctionalInterface
+    public interface RecordValidator<T> {
+        void validate(T record) throws Exception;
+    }
+    
+    @FunctionalInterface
+    public interface RecordApplier<T> {
+        void apply(T record) throws Exception;
+    }
+    
+    private final CSVParser.LineParser<T> parser;
+    private final RecordValidator<T> validator;
+    private final RecordApplier<T> applier;
+    private final int batchSize;
+    private final int queueCapacity;
+    private final boolean skipHeader;
+    private final int expectedFields;
+    private final boolean allOrNothing;
+    
+    public static class Builder<T> {
+        private CSVParser.LineParser<T> parser;
+        private RecordValidator<T> validator;
+        private RecordApplier<T> applier;
+        private int batchSize = 500;
+        private int queueCapacity = 4096;
+        private boolean skipHeader = true;
+        private int expectedFields;
+        private boolean allOrNothing;
+        
+        public Builder<T> parser(CSVParser.LineParser<T> parser) {
+            this.parser = parser;
+            return this;
+        }
+        
+        public Builder<T> validator(RecordValidator<T> validator) {
+            this.validator = validator;
+            return this;
+        }
+        
+        public Builder<T> applier(RecordApplier<T> applier) {
+            this.applier = applier;
+            return this;
+        }
+        
+        public Builder<T> batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+        
+        public Builder<T> queueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+        
+        public Builder<T> skipHeader(boolean skipHeader) {
+            this.skipHeader = skipHeader;
+            return this;
+        }
+        
+        /**
+         * Reject records with fewer fields before they reach the parser
+         */
+        public Builder<T> expectedFields(int expectedFields) {
+            this.expectedFields = expectedFields;
+            return this;
+        }
+        
+        public Builder<T> allOrNothing(boolean allOrNothing) {
+            this.allOrNothing = allOrNothing;
+            return this;
+        }
+        
+        public ImportPipeline<T> build() {
+            return new ImportPipeline<>(this);
+        }
+    }
+    
+    private ImportPipeline(Builder<T> builder) {
+        this.parser = Objects.requireNonNull(builder.parser, "Parser cannot be null");
+        this.applier = Objects.requireNonNull(builder.applier, "Applier cannot be null");
+        this.validator = builder.validator;
+        if (builder.batchSize <= 0 || builder.queueCapacity <= 0) {
+            throw new IllegalArgumentException("Batch size and queue capacity must be positive");
+        }
+        if (builder.expectedFields < 0) {
+            throw new IllegalArgumentException("Expected fields cannot be negative: " + builder.expectedFields);
+        }
+        this.batchSize = builder.batchSize;
+        this.queueCapacity = builder.queueCapacity;
+        this.skipHeader = builder.skipHeader;
+        this.expectedFields = builder.expectedFields;
+        this.allOrNothing = builder.allOrNothing;
+    }
+    
+    /**
+     * Run the pipeline over a file and return the aggregated report
+     */
+    public ImportReport run(Path filePath) throws IOException {
+        if (!Files.exists(filePath)) {
+            throw new IOException("File not found: " + filePath);
+        }
+        
+        long start = System.nanoTime();
+        ImportReport report = new ImportReport(new CSVProfile(expectedFields));
+        BlockingQueue<Item<String[]>> rawQueue = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Item<T>> parsedQueue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        
+        Thread reader = new Thread(() -> read(filePath, rawQueue, report, failure), "import-reader");
+        Thread parserThread = new Thread(() -> parse(rawQueue, parsedQueue, report, failure), "import-parser");
+        reader.setDaemon(true);
+        parserThread.setDaemon(true);
+        reader.start();
+        parserThread.start();
+        
+        try {
+            if (allOrNothing) {
+                applyAll(parsedQueue, report, failure);
+            } else {
+                apply(parsedQueue, report);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } finally {
+            reader.interrupt();
+            parserThread.interrupt();
+        }
+        
+        report.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return report;
+    }
+    
+    private void read(Path filePath, BlockingQueue<Item<String[]>> out, ImportReport report, 
+                      AtomicReference<IOException> failure) {
+        CSVProfile profile = report.getProfile();
+        boolean interrupted = false;
+        try (BufferedReader in = Files.newBufferedReader(filePath)) {
+            long bytes = Files.size(filePath);
+            CSVTokenizer tokenizer = new CSVTokenizer(in);
+            if (skipHeader) {
+                tokenizer.skipLine();
+            }
+            while (tokenizer.next()) {
+                report.recordRead();
+                String[] fields = tokenizer.getFields();
+                // Only the reader thread touches the profile until the run is over
+                if (!profile.record(fields)) {
+                    report.reject("structure", tokenizer.getLineNumber(), new InvalidDataException(
+                        "expected " + expectedFields + " fields, got " + fields.length));
+                    continue;
+                }
+                out.put(new Item<>(fields, tokenizer.getLineNumber()));
+            }
+            profile.finish(tokenizer.getLinesRead(), bytes);
+        } catch (IOException e) {
+            failure.set(e);
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } catch (RuntimeException e) {
+            failure.set(new IOException("Error reading " + filePath + ": " + e.getMessage(), e));
+        } finally {
+            // Whatever stopped the reader, the later stages must see the end or run() never returns
+            if (!interrupted) {
+                putEnd(out);
+            }
+        }
+    }
+    
+    private void parse(BlockingQueue<Item<String[]>> in, BlockingQueue<Item<T>> out, ImportReport report,
+                       AtomicReference<IOException> failure) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                Item<String[]> raw = in.take();
+                if (raw.isEnd()) {
+                    break;
+                }
+                try {
+                    T record = parser.parse(raw.value);
+                    if (record == null) {
+                        continue;
+                    }
+                    if (validator != null) {
+                        validator.validate(record);
+                    }
+                    report.recordParsed();
+                    out.put(new Item<>(record, raw.lineNumber));
+                } catch (InvalidDataException e) {
+                    report.reject("parse", raw.lineNumber, e);
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    report.reject("validate", raw.lineNumber, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } catch (Error e) {
+            // The records after this one are lost, so the import must not pass as complete
+            failure.compareAndSet(null, new IOException("Parser failed: " + e, e));
+            throw e;
+        } finally {
+            // As in read: without the end marker run() would wait for it forever
+            if (!interrupted) {
+                putEnd(out);
+            }
+        }
+    }
+    
+    private void apply(BlockingQueue<Item<T>> in, ImportReport report) throws InterruptedException {
+        List<Item<T>> batch = new ArrayList<>(batchSize);
+        boolean more = true;
+        while (more) {
+            more = takeBatch(in, batch, report);
+            for (Item<T> item : batch) {
+                applyOne(item, report);
+            }
+            batch.clear();
+        }
+    }
+    
+    // Holds every validated record until the end marker, then applies them only if nothing was rejected
+    private void applyAll(BlockingQueue<Item<T>> in, ImportReport report, AtomicReference<IOException> failure)
+            throws InterruptedException {
+        List<Item<T>> staged = new ArrayList<>();
+        boolean more = true;
+        while (more) {
+            more = takeBatch(in, staged, report);
+        }
+        
+        if (failure.get() != null || report.getRejectedCount() > 0) {
+            report.abort();
+            return;
+        }
+        for (Item<T> item : staged) {
+            applyOne(item, report);
+        }
+    }
+    
+    // Blocks for the first record, then takes whatever else is ready up to the batch size.
+    // Returns false once the end marker, always the last item, has been taken (it is not kept).
+    private boolean takeBatch(BlockingQueue<Item<T>> in, List<Item<T>> batch, ImportReport report) 
+            throws InterruptedException {
+        int before = batch.size();
+        batch.add(in.take());
+        in.drainTo(batch, batchSize - 1);
+        boolean end = batch.get(batch.size() - 1).isEnd();
+        if (end) {
+            batch.remove(batch.size() - 1);
+        }
+        if (batch.size() > before) {
+            report.recordBatch();
+        }
+        return !end;
+    }
+    
+    private void applyOne(Item<T> item, ImportReport report) {
+        try {
+            applier.apply(item.value);
+            report.recordApplied();
+        } catch (Exception e) {
+            report.reject("apply", item.lineNumber, e);
+        }
+    }
+    
+    private static <V> void putEnd(BlockingQueue<Item<V>> queue) {
+        try {
+            queue.put(new Item<>(null, -1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    // Queue element; a null value with line -1 marks the end of the stream
+    private static final class Item<V> {
+        private final V value;
+        private final int lineNumber;
+        
+        Item(V value, int lineNumber) {
+            this.value = value;
+            this.lineNumber = lineNumber;
+        }
+        
+        boolean isEnd() {
+            return lineNumber < 0;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+package edu.ccrm.io;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregated outcome of an import: stage counters plus a rejection summary grouped by
+ * stage and exception type, with a few sample lines per group instead of one log line per row
+ */
+public class ImportReport {
+    private static final int SAMPLES_PER_REASON = 5;
+    
+    private long recordsRead;
+    private long recordsParsed;
+    private long recordsApplied;
+    // Hand-offs from the parse stage; records are still applied one at a time
+    private long batches;
+    private long elapsedMillis;
+    private boolean aborted;
+    private final CSVProfile profile;
+    private final Map<String, Long> rejectionCounts = new LinkedHashMap<>();
+    private final Map<String, List<String>> rejectionSamples = new LinkedHashMap<>();
+    
+    ImportReport(CSVProfile profile) {
+        this.profile = profile;
+    }
+    
+    synchronized void recordRead() { recordsRead++; }
+    synchronized void recordParsed() { recordsParsed++; }
+    synchronized void recordApplied() { recordsApplied++; }
+    synchronized void recordBatch() { batches++; }
+    synchronized void setElapsedMillis(long elapsedMillis) { this.elapsedMillis = elapsedMillis; }
+    synchronized void abort() { aborted = true; }
+    
+    synchronized void reject(String stage, int lineNumber, Exception e) {
+        String reason = stage + "/" + e.getClass().getSimpleName();
+        rejectionCounts.merge(reason, 1L, Long::sum);
+        List<String> samples = rejectionSamples.computeIfAbsent(reason, r -> new ArrayList<>());
+        if (samples.size() < SAMPLES_PER_REASON) {
+            samples.add("line " + lineNumber + ": " + e.getMessage());
+        }
+    }
+    
+    public synchronized long getRecordsRead() { return recordsRead; }
+    public synchronized long getRecordsParsed() { return recordsParsed; }
+    public synchronized long getRecordsApplied() { return recordsApplied; }
+    public synchronized long getBatches() { return batches; }
+    public synchronized long getElapsedMillis() { return elapsedMillis; }
+    
+    /** True if an all-or-nothing import found rejections and applied nothing */
+    public synchronized boolean isAborted() { return aborted; }
+    
+    /** Statistics of the file gathered during the import; complete once the import returns */
+    public CSVProfile getProfile() { return profile; }
+    
+    public synchronized long getRejectedCount() {
+        return rejectionCounts.values().stream().mapToLong(Long::longValue).sum();
+    }
+    
+    public synchronized Map<String, Long> getRejectionCounts() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(rejectionCounts));
+    }
+    
+    public synchronized void printSummary(PrintStream out) {
+        out.println("Import Summary:");
+        out.println("  Records read: " + recordsRead);
+        out.println("  Records applied: " + recordsApplied + " (taken from the queue in " + batches + " batches)");
+        out.println("  Records rejected: " + getRejectedCount());
+        if (aborted) {
+            out.println("  Aborted: nothing applied because records were rejected");
+        }
+        rejectionCounts.forEach((reason, count) -> {
+            out.println("    " + reason + ": " + count);
+            rejectionSamples.get(reason).forEach(sample -> out.println("      " + sample));
+        });
+        out.println("  Elapsed: " + elapsedMillis + " ms");
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return String.format("ImportReport{read=%d, applied=%d, rejected=%d, aborted=%b, elapsedMs=%d}", 
+                           recordsRead, recordsApplied, getRejectedCount(), aborted, elapsedMillis);
+    }
+}
\ No newline at end of file
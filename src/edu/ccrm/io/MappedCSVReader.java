@@ -0,0 +1,221 @@
+package edu.ccrm.io;
+
+import edu.ccrm.exception.InvalidDataException;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parallel CSV ingestion for very large files.
+ * The file is memory-mapped and cut into chunks that end on record boundaries: a
+ * sequential byte scan tracks quote state (ignoring comment lines) and the line count,
+ * without decoding anything. Each chunk is then mapped, decoded and tokenized on a
+ * fork-join pool, and the per-chunk results are concatenated in file order.
+ * Line numbers in error messages refer to the whole file.
+ * Like parseCSVFile, lines end at "\n", "\r\n" or a lone "\r", and malformed UTF-8
+ * fails the parse instead of being replaced.
+ */
+public class MappedCSVReader {
+    private static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+    private static final long SCAN_WINDOW = 256L * 1024 * 1024;
+    
+    private final int chunkSize;
+    private final char delimiter;
+    private final ForkJoinPool pool;
+    
+    public MappedCSVReader() {
+        this(DEFAULT_CHUNK_SIZE, ',', ForkJoinPool.commonPool());
+    }
+    
+    public MappedCSVReader(int chunkSize, char delimiter, ForkJoinPool pool) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        if (delimiter > 0x7F || delimiter == '"' || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalArgumentException("Delimiter must be a single-byte character other than quote or a line break");
+        }
+        this.chunkSize = chunkSize;
+        this.delimiter = delimiter;
+        this.pool = pool;
+    }
+    
+    public <T> List<T> parse(Path filePath, CSVParser.LineParser<T> parser, boolean skipHeader) 
+            throws IOException {
+        if (!Files.exists(filePath)) {
+            throw new IOException("File not found: " + filePath);
+        }
+        
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            List<Chunk> chunks = split(channel, skipHeader);
+            
+            List<ForkJoinTask<List<T>>> tasks = new ArrayList<>(chunks.size());
+            for (Chunk chunk : chunks) {
+                boolean skipFirstLine = skipHeader && chunk.start == 0;
+                tasks.add(pool.submit(() -> parseChunk(channel, chunk, parser, skipFirstLine)));
+            }
+            
+            List<T> results = new ArrayList<>();
+            for (ForkJoinTask<List<T>> task : tasks) {
+                try {
+                    results.addAll(task.join());
+                } catch (RuntimeException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    throw new IOException("Error parsing " + filePath + ": " + cause.getMessage(), cause);
+                }
+            }
+            return results;
+        }
+    }
+    
+    /**
+     * Sequential byte scan that cuts the file at line breaks outside quotes, once each chunk
+     * has reached the target size. Quote and line handling mirror CSVTokenizer: a quote only
+     * opens a field at field start, a doubled quote inside quotes is an escaped quote, and
+     * "\r\n" counts as one line break (a chunk is never cut between its two bytes).
+     */
+    private List<Chunk> split(FileChannel channel, boolean skipHeader) throws IOException {
+        long size = channel.size();
+        List<Chunk> chunks = new ArrayList<>();
+        
+        boolean inQuotes = false;
+        boolean justClosed = false;     // previous byte closed a quoted section
+        boolean fieldStart = true;      // only whitespace since the last delimiter
+        boolean lineStart = true;       // only whitespace since the last record boundary
+        boolean inComment = skipHeader; // the header line is skipped like a comment
+        boolean afterCR = false;        // previous byte was '\r'
+        boolean cutAfterCR = false;     // a record ended at that '\r', so the next byte may start a chunk
+        long chunkStart = 0;
+        int chunkLine = 1;
+        int line = 1;
+        
+        for (long windowStart = 0; windowStart < size; windowStart += SCAN_WINDOW) {
+            long windowSize = Math.min(SCAN_WINDOW, size - windowStart);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+            
+            for (int i = 0; i < windowSize; i++) {
+                byte b = window.get(i);
+                long position = windowStart + i;
+                boolean crlf = afterCR && b == '\n';
+                afterCR = b == '\r';
+                if (cutAfterCR) {
+                    cutAfterCR = false;
+                    if (!crlf && position - chunkStart >= chunkSize) {
+                        chunks.add(new Chunk(chunkStart, position, chunkLine));
+                        chunkStart = position;
+                        chunkLine = line;
+                    }
+                }
+                if (inQuotes) {
+                    if (b == '"') {
+                        inQuotes = false;
+                        justClosed = true;
+                    } else if (b == '\r' || (b == '\n' && !crlf)) {
+                        line++;
+                    }
+                    continue;
+                }
+                if (justClosed) {
+                    justClosed = false;
+                    if (b == '"') {
+                        inQuotes = true; // "" escape
+                        continue;
+                    }
+                }
+                
+                if (b == '\n' || b == '\r') {
+                    if (!crlf) {
+                        line++;
+                    }
+                    inComment = false;
+                    lineStart = true;
+                    fieldStart = true;
+                    long next = position + 1;
+                    if (b == '\r') {
+                        cutAfterCR = true; // decided at the next byte, which may be the '\n' of "\r\n"
+                    } else if (next - chunkStart >= chunkSize) {
+                        chunks.add(new Chunk(chunkStart, next, chunkLine));
+                        chunkStart = next;
+                        chunkLine = line;
+                    }
+                } else if (inComment) {
+                    continue;
+                } else if (b == delimiter) {
+                    fieldStart = true;
+                    lineStart = false;
+                } else if (b == '"' && fieldStart) {
+                    inQuotes = true;
+                    fieldStart = false;
+                    lineStart = false;
+                } else if ((b & 0xFF) <= ' ') {
+                    continue;
+                } else if (b == '#' && lineStart) {
+                    inComment = true;
+                } else {
+                    fieldStart = false;
+                    lineStart = false;
+                }
+            }
+        }
+        
+        if (chunkStart < size) {
+            chunks.add(new Chunk(chunkStart, size, chunkLine));
+        }
+        return chunks;
+    }
+    
+    private <T> List<T> parseChunk(FileChannel channel, Chunk chunk, CSVParser.LineParser<T> parser, 
+                                   boolean skipFirstLine) throws IOException {
+        MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, chunk.start, chunk.end - chunk.start);
+        // Strict like Files.newBufferedReader; chunks are cut after ASCII bytes, never inside a character
+        CharBuffer chars = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                .decode(bytes);
+        
+        CSVTokenizer tokenizer = new CSVTokenizer(
+            new CharArrayReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining()),
+            delimiter, chunk.firstLine);
+        if (skipFirstLine) {
+            tokenizer.skipLine();
+        }
+        
+        List<T> results = new ArrayList<>();
+        while (tokenizer.next()) {
+            String[] fields = tokenizer.getFields();
+            try {
+                T result = parser.parse(fields);
+                if (result != null) {
+                    results.add(result);
+                }
+            } catch (InvalidDataException e) {
+                System.err.println("Error parsing line " + tokenizer.getLineNumber() + ": " + 
+                                 String.join(",", fields) + " - " + e.getMessage());
+            }
+        }
+        return results;
+    }
+    
+    private static final class Chunk {
+        private final long start;
+        private final long end;
+        private final int firstLine;
+        
+        Chunk(long start, long end, int firstLine) {
+            this.start = start;
+            this.end = end;
+            this.firstLine = firstLine;
+        }
+    }
+}
\ No newline at end of file
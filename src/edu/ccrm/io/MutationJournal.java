@@ -0,0 +1,793 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.exception.CourseNotFoundException;
+import edu.ccrm.exception.DuplicateCourseException;
+import edu.ccrm.exception.DuplicateEnrollmentException;
+import edu.ccrm.exception.DuplicateStudentException;
+import edu.ccrm.exception.EnrollmentNotFoundException;
+import edu.ccrm.exception.StudentNotFoundException;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.EnrollmentService;
+import edu.ccrm.service.MutationListener;
+import edu.ccrm.service.StudentService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Write-ahead journal of every change made through the student, course and enrollment
+ * services, so nothing is lost between exports.
+ *
+ * Each change is appended as a small checksummed record (varint length, type byte and
+ * varint/UTF-8 fields, CRC-32C) and the mutating call returns only once its record is
+ * on disk. The record is queued while the service still holds its locks, so records
+ * stay in apply order, but the wait for the fsync happens in afterMutation, once those
+ * locks are released, so a slow disk never stalls other threads on the same lock.
+ * Records are gathered by a single flusher thread, so all writers that arrive while one
+ * fsync is in progress share the next one (group commit).
+ *
+ * Once a write fails the journal refuses every later change in beforeMutation, before
+ * the services apply it, so memory cannot run ahead of the disk. Only changes already
+ * in flight when the write failed are applied but not journaled; their callers get
+ * the failure from afterMutation.
+ *
+ * The journal is split into numbered segments. A checkpoint starts a new segment, writes
+ * a binary snapshot of the services and then deletes older segments, so recovery is
+ * "load the newest checkpoint, replay the segments after it". Replay is idempotent,
+ * because a snapshot taken while writers run may already contain some of the records
+ * that follow it.
+ */
+public class MutationJournal implements MutationListener, AutoCloseable {
+    private static final byte[] MAGIC = "CCRMJRNL".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = MAGIC.length + 4;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_PREFIX = "checkpoint-";
+    private static final String CHECKPOINT_SUFFIX = ".snap";
+    private static final long DEFAULT_CHECKPOINT_INTERVAL = 100_000;
+    
+    // Record types
+    private static final int STUDENT_ADDED = 1;
+    private static final int STUDENT_UPDATED = 2;
+    private static final int STUDENT_DEACTIVATED = 3;
+    private static final int COURSE_ADDED = 4;
+    private static final int COURSE_UPDATED = 5;
+    private static final int COURSE_DEACTIVATED = 6;
+    private static final int ENROLLED = 7;
+    private static final int UNENROLLED = 8;
+    private static final int GRADE_ASSIGNED = 9;
+    private static final int COURSE_REASSIGNED = 10;
+    
+    private final Path directory;
+    private final StudentService studentService;
+    private final CourseService courseService;
+    private final EnrollmentService enrollmentService;
+    private final SnapshotService snapshots;
+    private final long checkpointInterval;
+    
+    // Guards everything below; the flusher waits on hasWork, writers on durable
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasWork = lock.newCondition();
+    private final Condition durable = lock.newCondition();
+    private BinaryEncoder pending = new BinaryEncoder(64 * 1024);
+    private BinaryEncoder spare = new BinaryEncoder(64 * 1024);
+    private FileChannel segment;
+    private long segmentNumber;
+    private long appendedSeq;
+    private long durableSeq;
+    private long sinceCheckpoint;
+    private IOException failure;
+    private boolean closed;
+    
+    private final Thread flusher;
+    private final Object checkpointLock = new Object();
+    private final AtomicBoolean checkpointScheduled = new AtomicBoolean();
+    private final ThreadLocal<BinaryEncoder> scratch = ThreadLocal.withInitial(() -> new BinaryEncoder(256));
+    // Highest record sequence the thread has queued and not yet waited for, or LOST
+    private final ThreadLocal<long[]> awaited = ThreadLocal.withInitial(() -> new long[1]);
+    private static final long LOST = Long.MAX_VALUE;
+    
+    private MutationJournal(Path directory, StudentService studentService, CourseService courseService,
+                            EnrollmentService enrollmentService, long checkpointInterval) {
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive: " + checkpointInterval);
+        }
+        this.directory = directory;
+        this.studentService = studentService;
+        this.courseService = courseService;
+        this.enrollmentService = enrollmentService;
+        this.snapshots = new SnapshotService(studentService, courseService, enrollmentService);
+        this.checkpointInterval = checkpointInterval;
+        this.flusher = new Thread(this::flushLoop, "journal-flusher");
+        this.flusher.setDaemon(true);
+    }
+    
+    public static MutationJournal open(Path directory, StudentService studentService,
+                                       CourseService courseService, EnrollmentService enrollmentService)
+            throws IOException {
+        return open(directory, studentService, courseService, enrollmentService, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+    
+    /**
+     * Recover the services from the journal directory, then start journaling their changes.
+     * The services should be empty; a checkpoint is taken automatically every
+     * {@code checkpointInterval} records.
+     */
+    public static MutationJournal open(Path directory, StudentService studentService,
+                                       CourseService courseService, EnrollmentService enrollmentService,
+                                       long checkpointInterval) throws IOException {
+        Files.createDirectories(directory);
+        MutationJournal journal = new MutationJournal(directory, studentService, courseService,
+                                                      enrollmentService, checkpointInterval);
+        long lastSegment = journal.recover();
+        
+        // Always start a fresh segment rather than appending after a possibly torn tail
+        journal.segmentNumber = lastSegment + 1;
+        journal.segment = openSegment(journal.segmentPath(journal.segmentNumber));
+        journal.flusher.start();
+        
+        studentService.addMutationListener(journal);
+        courseService.addMutationListener(journal);
+        enrollmentService.addMutationListener(journal);
+        return journal;
+    }
+    
+    /**
+     * Snapshot the services and drop the journal segments the snapshot covers.
+     * Writers are only paused while the segment is switched, not while the snapshot is written.
+     */
+    public void checkpoint() throws IOException {
+        synchronized (checkpointLock) {
+            long number = rotate();
+            snapshots.saveSnapshot(directory.resolve(CHECKPOINT_PREFIX + number + CHECKPOINT_SUFFIX));
+            for (Map.Entry<Long, Path> old : list(SEGMENT_PREFIX, SEGMENT_SUFFIX).headMap(number).entrySet()) {
+                Files.deleteIfExists(old.getValue());
+            }
+            for (Map.Entry<Long, Path> old : list(CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX).headMap(number).entrySet()) {
+                Files.deleteIfExists(old.getValue());
+            }
+        }
+    }
+    
+    /**
+     * Stop journaling. Records already appended are flushed before this returns.
+     */
+    @Override
+    public void close() throws IOException {
+        studentService.removeMutationListener(this);
+        courseService.removeMutationListener(this);
+        enrollmentService.removeMutationListener(this);
+        
+        synchronized (checkpointLock) {
+            lock.lock();
+            try {
+                closed = true;
+                hasWork.signal();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            segment.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+    
+    // ---- MutationListener: refuse changes once failed, queue each change, wait after unlock ----
+    
+    @Override
+    public void beforeMutation() {
+        lock.lock();
+        try {
+            if (closed || failure != null) {
+                throw new UncheckedIOException(new IOException("Journal is not accepting writes", failure));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Wait until every record this thread queued is on disk
+     */
+    @Override
+    public void afterMutation() {
+        long[] pendingSeq = awaited.get();
+        long seq = pendingSeq[0];
+        if (seq == 0) {
+            return;
+        }
+        pendingSeq[0] = 0;
+        if (seq == LOST) {
+            throw new UncheckedIOException(new IOException("Journal stopped accepting writes; a change was not journaled",
+                                                           failure));
+        }
+        lock.lock();
+        try {
+            while (durableSeq < seq && failure == null) {
+                durable.awaitUninterruptibly();
+            }
+            if (durableSeq < seq) {
+                throw new UncheckedIOException(new IOException("Journal write failed", failure));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public void studentAdded(Student student) {
+        BinaryEncoder out = begin(STUDENT_ADDED);
+        out.writeString(student.getId());
+        out.writeString(student.getRegNo());
+        out.writeString(student.getFullName());
+        out.writeString(student.getEmail());
+        out.writeBoolean(student.isActive());
+        out.writeTimestamp(student.getCreatedDate());
+        append(out);
+    }
+    
+    @Override
+    public void studentUpdated(Student student) {
+        BinaryEncoder out = begin(STUDENT_UPDATED);
+        out.writeString(student.getId());
+        out.writeString(student.getFullName());
+        out.writeString(student.getEmail());
+        append(out);
+    }
+    
+    @Override
+    public void studentDeactivated(Student student) {
+        BinaryEncoder out = begin(STUDENT_DEACTIVATED);
+        out.writeString(student.getId());
+        append(out);
+    }
+    
+    @Override
+    public void courseAdded(Course course) {
+        BinaryEncoder out = begin(COURSE_ADDED);
+        out.writeString(course.getCode().getCode());
+        out.writeString(course.getTitle());
+        out.writeZigZag(course.getCredits());
+        out.writeNullableString(course.getSemester() != null ? course.getSemester().name() : null);
+        out.writeNullableString(course.getDepartment());
+        out.writeBoolean(course.isActive());
+        writeInstructor(out, course.getInstructor());
+        append(out);
+    }
+    
+    @Override
+    public void courseUpdated(Course course) {
+        BinaryEncoder out = begin(COURSE_UPDATED);
+        out.writeString(course.getCode().getCode());
+        out.writeString(course.getTitle());
+        out.writeZigZag(course.getCredits());
+        append(out);
+    }
+    
+    @Override
+    public void courseReassigned(Course course) {
+        BinaryEncoder out = begin(COURSE_REASSIGNED);
+        out.writeString(course.getCode().getCode());
+        out.writeNullableString(course.getDepartment());
+        writeInstructor(out, course.getInstructor());
+        append(out);
+    }
+    
+    @Override
+    public void courseDeactivated(Course course) {
+        BinaryEncoder out = begin(COURSE_DEACTIVATED);
+        out.writeString(course.getCode().getCode());
+        append(out);
+    }
+    
+    @Override
+    public void enrolled(Enrollment enrollment) {
+        BinaryEncoder out = begin(ENROLLED);
+        writeKey(out, enrollment);
+        out.writeTimestamp(enrollment.getEnrollmentDate());
+        out.writeString(enrollment.getGrade().name());
+        append(out);
+    }
+    
+    @Override
+    public void unenrolled(Enrollment enrollment) {
+        BinaryEncoder out = begin(UNENROLLED);
+        writeKey(out, enrollment);
+        append(out);
+    }
+    
+    @Override
+    public void gradeAssigned(Enrollment enrollment) {
+        BinaryEncoder out = begin(GRADE_ASSIGNED);
+        writeKey(out, enrollment);
+        out.writeString(enrollment.getGrade().name());
+        append(out);
+    }
+    
+    private static void writeInstructor(BinaryEncoder out, Instructor instructor) {
+        out.writeBoolean(instructor != null);
+        if (instructor != null) {
+            out.writeString(instructor.getId());
+            out.writeString(instructor.getFullName());
+            out.writeString(instructor.getEmail());
+            out.writeNullableString(instructor.getDepartment());
+            out.writeNullableString(instructor.getFacultyId());
+            out.writeBoolean(instructor.isActive());
+            out.writeTimestamp(instructor.getCreatedDate());
+        }
+    }
+    
+    private static void writeKey(BinaryEncoder out, Enrollment enrollment) {
+        out.writeString(enrollment.getStudent().getId());
+        out.writeString(enrollment.getCourse().getCode().getCode());
+    }
+    
+    private BinaryEncoder begin(int type) {
+        BinaryEncoder out = scratch.get();
+        out.reset();
+        out.writeByte(type);
+        return out;
+    }
+    
+    // Runs under the service's locks, so it only queues the record; afterMutation waits for it
+    private void append(BinaryEncoder record) {
+        int crc = record.crc();
+        long[] pendingSeq = awaited.get();
+        boolean checkpointDue;
+        
+        lock.lock();
+        try {
+            if (closed || failure != null) {
+                // The change is already applied; throwing here would skip the other listeners
+                pendingSeq[0] = LOST;
+                return;
+            }
+            pending.writeVarint(record.size());
+            pending.write(record);
+            pending.writeInt(crc);
+            if (pendingSeq[0] != LOST) {
+                pendingSeq[0] = ++appendedSeq;
+            } else {
+                ++appendedSeq;
+            }
+            checkpointDue = ++sinceCheckpoint >= checkpointInterval;
+            hasWork.signal();
+        } finally {
+            lock.unlock();
+        }
+        
+        if (checkpointDue && checkpointScheduled.compareAndSet(false, true)) {
+            Thread checkpointer = new Thread(() -> {
+                try {
+                    checkpoint();
+                } catch (IOException | UncheckedIOException e) {
+                    System.err.println("Journal checkpoint failed: " + e.getMessage());
+                } finally {
+                    checkpointScheduled.set(false);
+                }
+            }, "journal-checkpoint");
+            checkpointer.setDaemon(true);
+            checkpointer.start();
+        }
+    }
+    
+    // Takes whatever has accumulated, writes it with one fsync, then wakes its writers
+    private void flushLoop() {
+        while (true) {
+            BinaryEncoder batch;
+            long batchSeq;
+            FileChannel channel;
+            
+            lock.lock();
+            try {
+                while (pending.size() == 0 && !closed) {
+                    hasWork.awaitUninterruptibly();
+                }
+                if (pending.size() == 0) {
+                    return;
+                }
+                batch = pending;
+                pending = spare;
+                batchSeq = appendedSeq;
+                channel = segment;
+            } finally {
+                lock.unlock();
+            }
+            
+            IOException error = null;
+            try {
+                ByteBuffer buffer = batch.toBuffer();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+            
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableSeq = batchSeq;
+                }
+                batch.reset();
+                spare = batch;
+                durable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (error != null) {
+                System.err.println("Journal write failed: " + error.getMessage());
+                return;
+            }
+        }
+    }
+    
+    // Switch to the next segment once everything appended so far is on disk
+    private long rotate() throws IOException {
+        lock.lock();
+        try {
+            while (durableSeq < appendedSeq && failure == null) {
+                durable.awaitUninterruptibly();
+            }
+            if (closed || failure != null) {
+                throw new IOException("Journal is not accepting writes", failure);
+            }
+            FileChannel next = openSegment(segmentPath(segmentNumber + 1));
+            segment.close();
+            segment = next;
+            segmentNumber++;
+            sinceCheckpoint = 0;
+            return segmentNumber;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private static FileChannel openSegment(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).put(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        channel.force(true);
+        return channel;
+    }
+    
+    private Path segmentPath(long number) {
+        return directory.resolve(SEGMENT_PREFIX + number + SEGMENT_SUFFIX);
+    }
+    
+    // Numbered files with the given prefix and suffix, in number order
+    private TreeMap<Long, Path> list(String prefix, String suffix) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (Stream<Path> entries = Files.list(directory)) {
+            entries.forEach(path -> {
+                String name = path.getFileName().toString();
+                if (name.startsWith(prefix) && name.endsWith(suffix)) {
+                    try {
+                        files.put(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())), path);
+                    } catch (NumberFormatException e) {
+                        // Not one of ours
+                    }
+                }
+            });
+        }
+        return files;
+    }
+    
+    // ---- Recovery ----
+    
+    // Lookups by key across active and inactive records, kept only while replaying
+    private final Map<String, Student> replayStudents = new HashMap<>();
+    private final Map<String, Course> replayCourses = new HashMap<>();
+    private final Map<String, Instructor> replayInstructors = new HashMap<>();
+    
+    /**
+     * Load the newest checkpoint and replay the segments written after it.
+     * @return the highest segment or checkpoint number seen
+     */
+    private long recover() throws IOException {
+        TreeMap<Long, Path> checkpoints = list(CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX);
+        TreeMap<Long, Path> segments = list(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        long checkpoint = checkpoints.isEmpty() ? 0 : checkpoints.lastKey();
+        if (checkpoint > 0) {
+            snapshots.loadSnapshot(checkpoints.get(checkpoint));
+        }
+        
+        // Inactive records first, so a key re-used by an active record resolves to the active one
+        studentService.findInactive().forEach(s -> replayStudents.put(s.getId(), s));
+        studentService.stream().forEach(s -> replayStudents.put(s.getId(), s));
+        courseService.findInactive().forEach(c -> replayCourses.put(c.getCode().getCode(), c));
+        courseService.stream().forEach(c -> replayCourses.put(c.getCode().getCode(), c));
+        replayCourses.values().stream()
+                .map(Course::getInstructor)
+                .filter(i -> i != null)
+                .forEach(i -> replayInstructors.putIfAbsent(i.getId(), i));
+                
+        long replayed = 0;
+        for (Map.Entry<Long, Path> entry : segments.tailMap(checkpoint).entrySet()) {
+            replayed += replay(entry.getValue(), entry.getKey().equals(segments.lastKey()));
+        }
+        replayStudents.clear();
+        replayCourses.clear();
+        replayInstructors.clear();
+        
+        if (checkpoint > 0 || replayed > 0) {
+            System.out.println("Recovered from " + (checkpoint > 0 ? "checkpoint " + checkpoint : "an empty store") +
+                               " and " + replayed + " journal records");
+        }
+        long lastSegment = segments.isEmpty() ? 0 : segments.lastKey();
+        return Math.max(checkpoint, lastSegment);
+    }
+    
+    /**
+     * Apply one segment's records. Only the newest segment can end in a torn write, since
+     * a segment is closed only once all of it is durable and every restart opens a new one
+     * after truncating the torn tail; damage anywhere else would silently drop acknowledged
+     * records under the ones after it, so recovery fails instead.
+     */
+    private long replay(Path path, boolean newest) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        if (bytes.length < HEADER_BYTES) {
+            // A crash while the segment was being created leaves it with no records
+            System.err.println("Skipping journal segment without a complete header: " + path);
+            return 0;
+        }
+        if (!Arrays.equals(Arrays.copyOf(bytes, MAGIC.length), MAGIC)) {
+            throw new IOException("Not a journal segment: " + path);
+        }
+        int version = ByteBuffer.wrap(bytes, MAGIC.length, 4).getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported journal version " + version + " in " + path);
+        }
+        
+        String context = "journal " + path.getFileName();
+        BinaryDecoder in = new BinaryDecoder(context, bytes, HEADER_BYTES, bytes.length);
+        long records = 0;
+        while (in.remaining() > 0) {
+            int start = in.position();
+            int length;
+            try {
+                length = in.readVarint();
+            } catch (IOException e) {
+                length = -1;
+            }
+            int bodyStart = in.position();
+            // A record cut short or failing its checksum is the tail of a write that never
+            // completed (and was never acknowledged); everything before it is kept
+            if (length < 0 || length + 4 > in.remaining() ||
+                    BinaryEncoder.crc(bytes, bodyStart, length) != readInt(bytes, bodyStart + length)) {
+                if (!newest) {
+                    throw new IOException("Journal " + path.getFileName() + " is damaged at byte " + start +
+                                          ", before later segments; refusing to recover past it");
+                }
+                System.err.println("Journal " + path.getFileName() + " ends in an incomplete record at byte " +
+                                   start + "; truncating it there");
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(start);
+                }
+                break;
+            }
+            apply(new BinaryDecoder(context, bytes, bodyStart, bodyStart + length));
+            in.skip(length + 4);
+            records++;
+        }
+        return records;
+    }
+    
+    private static int readInt(byte[] bytes, int offset) {
+        return ByteBuffer.wrap(bytes, offset, 4).getInt();
+    }
+    
+    // Every record type is applied as "make it so", so replaying a change the checkpoint already holds is harmless
+    private void apply(BinaryDecoder in) throws IOException {
+        int type = in.readByte();
+        try {
+            switch (type) {
+                case STUDENT_ADDED: {
+                    Student.Builder builder = new Student.Builder()
+                            .id(in.readString())
+                            .regNo(in.readString())
+                            .fullName(in.readString())
+                            .email(in.readString());
+                    boolean active = in.readBoolean();
+                    Student student = builder.createdDate(in.readTimestamp()).build();
+                    // Same id and creation time means the checkpoint already holds this student;
+                    // a different creation time is a new student re-using a deactivated id
+                    Student known = replayStudents.get(student.getId());
+                    if (known == null || (!known.isActive() && !known.getCreatedDate().equals(student.getCreatedDate()))) {
+                        student.setActive(active);
+                        studentService.addStudent(student);
+                        replayStudents.put(student.getId(), student);
+                    }
+                    break;
+                }
+                case STUDENT_UPDATED: {
+                    Student student = replayStudents.get(in.readString());
+                    String fullName = in.readString();
+                    String email = in.readString();
+                    if (student != null && student.isActive()) {
+                        studentService.updateStudent(student.getId(), fullName, email);
+                    } else if (student != null) {
+                        student.setFullName(fullName);
+                        student.setEmail(email);
+                    }
+                    break;
+                }
+                case STUDENT_DEACTIVATED: {
+                    Student student = replayStudents.get(in.readString());
+                    if (student != null && student.isActive()) {
+                        studentService.deactivateStudent(student.getId());
+                    }
+                    break;
+                }
+                case COURSE_ADDED:
+                    applyCourseAdded(in);
+                    break;
+                case COURSE_UPDATED: {
+                    Course course = replayCourses.get(in.readString());
+                    String title = in.readString();
+                    int credits = in.readZigZag();
+                    if (course != null && course.isActive()) {
+                        courseService.updateCourse(course.getCode(), title, credits);
+                    } else if (course != null) {
+                        course.setTitle(title);
+                        course.setCredits(credits);
+                    }
+                    break;
+                }
+                case COURSE_REASSIGNED: {
+                    Course course = replayCourses.get(in.readString());
+                    String department = in.readNullableString();
+                    Instructor instructor = readInstructor(in);
+                    if (course != null && course.isActive()) {
+                        courseService.reassignCourse(course.getCode(), instructor, department);
+                    } else if (course != null) {
+                        course.setInstructor(instructor);
+                        course.setDepartment(department);
+                    }
+                    break;
+                }
+                case COURSE_DEACTIVATED: {
+                    Course course = replayCourses.get(in.readString());
+                    if (course != null && course.isActive()) {
+                        courseService.deactivateCourse(course.getCode());
+                    }
+                    break;
+                }
+                case ENROLLED: {
+                    Student student = replayStudents.get(in.readString());
+                    Course course = replayCourses.get(in.readString());
+                    LocalDateTime enrollmentDate = in.readTimestamp();
+                    Grade grade = grade(in);
+                    if (student != null && course != null && enrollmentService.findEnrollment(student, course) == null) {
+                        enrollmentService.restoreEnrollment(student, course, enrollmentDate, grade);
+                    }
+                    break;
+                }
+                case UNENROLLED: {
+                    Student student = replayStudents.get(in.readString());
+                    Course course = replayCourses.get(in.readString());
+                    if (student != null && course != null && enrollmentService.findEnrollment(student, course) != null) {
+                        enrollmentService.unenrollStudent(student, course);
+                    }
+                    break;
+                }
+                case GRADE_ASSIGNED: {
+                    Student student = replayStudents.get(in.readString());
+                    Course course = replayCourses.get(in.readString());
+                    Grade grade = grade(in);
+                    if (student != null && course != null && enrollmentService.findEnrollment(student, course) != null) {
+                        enrollmentService.assignGrade(student, course, grade);
+                    }
+                    break;
+                }
+                default:
+                    throw in.corrupt("unknown record type " + type);
+            }
+            in.expectEnd();
+        } catch (DuplicateStudentException | DuplicateCourseException | DuplicateEnrollmentException |
+                 StudentNotFoundException | CourseNotFoundException | EnrollmentNotFoundException e) {
+            throw new IOException("Journal replay failed: " + e.getMessage(), e);
+        }
+    }
+    
+    private void applyCourseAdded(BinaryDecoder in) throws IOException, DuplicateCourseException {
+        String code = in.readString();
+        String title = in.readString();
+        int credits = in.readZigZag();
+        String semester = in.readNullableString();
+        String department = in.readNullableString();
+        boolean active = in.readBoolean();
+        Instructor instructor = readInstructor(in);
+        // Courses carry no creation time, so a known inactive course only counts as this record
+        // when the record was itself added inactive; otherwise it is taken as a re-used code
+        Course known = replayCourses.get(code);
+        if (known != null && (known.isActive() || !active)) {
+            return;
+        }
+        
+        Course course;
+        try {
+            course = new Course.Builder()
+                    .code(new CourseCode(code))
+                    .title(title)
+                    .credits(credits)
+                    .instructor(instructor)
+                    .semester(semester != null ? Semester.valueOf(semester) : null)
+                    .department(department)
+                    .build();
+        } catch (IllegalArgumentException e) {
+            throw in.corrupt(e.getMessage());
+        }
+        course.setActive(active);
+        courseService.addCourse(course);
+        replayCourses.put(code, course);
+    }
+    
+    private Instructor readInstructor(BinaryDecoder in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        String id = in.readString();
+        String fullName = in.readString();
+        String email = in.readString();
+        String instructorDepartment = in.readNullableString();
+        String facultyId = in.readNullableString();
+        boolean instructorActive = in.readBoolean();
+        LocalDateTime createdDate = in.readTimestamp();
+        // Courses taught by the same instructor share one Instructor again after replay
+        return replayInstructors.computeIfAbsent(id, k -> {
+            Instructor restored = new Instructor(id, fullName, email, instructorDepartment, facultyId, createdDate);
+            restored.setActive(instructorActive);
+            return restored;
+        });
+    }
+    
+    private static Grade grade(BinaryDecoder in) throws IOException {
+        String name = in.readString();
+        try {
+            return Grade.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw in.corrupt("unknown grade " + name);
+        }
+    }
+    
+    /**
+     * Number of records appended since the journal was opened
+     */
+    public long getAppendedCount() {
+        lock.lock();
+        try {
+            return appendedSeq;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,609 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.exception.DuplicateCourseException;
+import edu.ccrm.exception.DuplicateEnrollmentException;
+import edu.ccrm.exception.DuplicateStudentException;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.EnrollmentService;
+import edu.ccrm.service.StudentService;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Versioned binary snapshot of the student, course and enrollment registries.
+ *
+ * Layout: an 8-byte magic, the format version and a section table (id, record count,
+ * offset, length and CRC-32C per section, then a CRC of the header itself), followed by
+ * the section bodies. Integers are varints, timestamps are UTC epoch seconds plus nanos,
+ * departments, course prefixes, semesters and grades go through per-section dictionaries,
+ * and enrollments refer to students and courses by their position in those sections.
+ *
+ * Every section carries its own dictionaries, so sections are verified and decoded
+ * independently and in parallel; only linking courses to instructors and enrollments
+ * to students and courses waits for the sections they point at.
+ */
+public class SnapshotService {
+    private static final byte[] MAGIC = "CCRMSNAP".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int SECTION_ENTRY_BYTES = 4 + 4 + 8 + 4 + 4;
+    
+    private static final int STUDENTS = 1;
+    private static final int INSTRUCTORS = 2;
+    private static final int COURSES = 3;
+    private static final int ENROLLMENTS = 4;
+    
+    private final StudentService studentService;
+    private final CourseService courseService;
+    private final EnrollmentService enrollmentService;
+    private final Executor executor;
+    
+    public SnapshotService(StudentService studentService, CourseService courseService,
+                           EnrollmentService enrollmentService) {
+        this(studentService, courseService, enrollmentService, ForkJoinPool.commonPool());
+    }
+    
+    public SnapshotService(StudentService studentService, CourseService courseService,
+                           EnrollmentService enrollmentService, Executor executor) {
+        this.studentService = studentService;
+        this.courseService = courseService;
+        this.enrollmentService = enrollmentService;
+        this.executor = executor;
+    }
+    
+    /**
+     * Write every student, instructor, course and enrollment, active or not.
+     * The file is written next to the target and moved into place, so a crash
+     * never leaves a half-written snapshot under the real name.
+     */
+    public void saveSnapshot(Path path) throws IOException {
+        long start = System.nanoTime();
+        
+        // One deactivated between the two reads shows up in both, so the sets drop the repeat
+        Set<Student> studentSet = new LinkedHashSet<>();
+        studentService.stream().forEach(studentSet::add);
+        studentSet.addAll(studentService.findInactive());
+        List<Student> students = new ArrayList<>(studentSet);
+        
+        Set<Course> courseSet = new LinkedHashSet<>();
+        courseService.stream().forEach(courseSet::add);
+        courseSet.addAll(courseService.findInactive());
+        List<Course> courses = new ArrayList<>(courseSet);
+        
+        // Instructors are only reachable through their courses
+        Map<Instructor, Integer> instructorIndex = new IdentityHashMap<>();
+        List<Instructor> instructors = new ArrayList<>();
+        for (Course course : courses) {
+            Instructor instructor = course.getInstructor();
+            if (instructor != null && !instructorIndex.containsKey(instructor)) {
+                instructorIndex.put(instructor, instructors.size());
+                instructors.add(instructor);
+            }
+        }
+        
+        Map<Student, Integer> studentIndex = indexOf(students);
+        Map<Course, Integer> courseIndex = indexOf(courses);
+        // Taken while the services keep changing, an enrollment can reference a student or
+        // course registered after those lists were read; such rows are left out, never dangling
+        List<Enrollment> enrollments = new ArrayList<>();
+        enrollmentService.streamEnrollments()
+                .filter(e -> studentIndex.containsKey(e.getStudent()) && courseIndex.containsKey(e.getCourse()))
+                .forEach(enrollments::add);
+        
+        List<Section> sections = List.of(
+            new Section(STUDENTS, students.size(), encodeStudents(students)),
+            new Section(INSTRUCTORS, instructors.size(), encodeInstructors(instructors)),
+            new Section(COURSES, courses.size(), encodeCourses(courses, instructorIndex)),
+            new Section(ENROLLMENTS, enrollments.size(), encodeEnrollments(enrollments, studentIndex, courseIndex)));
+            
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer[] buffers = new ByteBuffer[sections.size() + 1];
+            buffers[0] = header(sections);
+            for (int i = 0; i < sections.size(); i++) {
+                buffers[i + 1] = sections.get(i).body.toBuffer();
+            }
+            while (buffers[buffers.length - 1].hasRemaining()) {
+                channel.write(buffers);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        
+        System.out.println("Saved snapshot of " + students.size() + " students, " + courses.size() +
+                           " courses and " + enrollments.size() + " enrollments to " + path +
+                           " (" + Files.size(path) + " bytes, " + elapsedMillis(start) + " ms)");
+    }
+    
+    /**
+     * Load a snapshot into the services. Every section is checksummed and decoded, and
+     * every record is checked against the snapshot itself and the data already in the
+     * services, before the first one is added; a damaged or foreign file, or an active
+     * id or code that is already taken, fails with an IOException and leaves the services
+     * untouched. Inactive records may share their key with an active one, as they do in
+     * the services. Registrations made concurrently with a load are not guarded against.
+     */
+    public void loadSnapshot(Path path) throws IOException {
+        long start = System.nanoTime();
+        
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Map<Integer, SectionEntry> table = readTable(channel, path);
+            
+            // Positional reads on one channel are safe from several threads
+            CompletableFuture<Student[]> students = async(() -> decodeStudents(read(channel, table, STUDENTS)));
+            CompletableFuture<Instructor[]> instructors =
+                async(() -> decodeInstructors(read(channel, table, INSTRUCTORS)));
+            CompletableFuture<Decoder> courseSection = async(() -> read(channel, table, COURSES));
+            CompletableFuture<Decoder> enrollmentSection = async(() -> read(channel, table, ENROLLMENTS));
+            CompletableFuture<Course[]> courses = courseSection.thenCombineAsync(instructors,
+                SnapshotService::decodeCourses, executor);
+                
+            Student[] loadedStudents = join(students, path);
+            Course[] loadedCourses = join(courses, path);
+            Enrollment[] loadedEnrollments = decodeEnrollments(join(enrollmentSection, path),
+                                                               loadedStudents, loadedCourses);
+            checkConflicts(loadedStudents, loadedCourses, path);
+            
+            for (Student student : loadedStudents) {
+                studentService.addStudent(student);
+            }
+            for (Course course : loadedCourses) {
+                courseService.addCourse(course);
+            }
+            for (Enrollment e : loadedEnrollments) {
+                enrollmentService.restoreEnrollment(e.getStudent(), e.getCourse(), e.getEnrollmentDate(), e.getGrade());
+            }
+            
+            System.out.println("Loaded snapshot of " + loadedStudents.length + " students, " +
+                               loadedCourses.length + " courses and " + loadedEnrollments.length +
+                               " enrollments from " + path + " (" + elapsedMillis(start) + " ms)");
+        } catch (DuplicateStudentException | DuplicateCourseException | DuplicateEnrollmentException e) {
+            throw new IOException("Snapshot " + path + " conflicts with existing data: " + e.getMessage(), e);
+        }
+    }
+    
+    // ---- Sections ----
+    
+    private static BinaryEncoder encodeStudents(List<Student> students) {
+        BinaryEncoder out = new BinaryEncoder();
+        for (Student student : students) {
+            out.writeString(student.getId());
+            out.writeString(student.getRegNo());
+            out.writeString(student.getFullName());
+            out.writeString(student.getEmail());
+            out.writeBoolean(student.isActive());
+            out.writeTimestamp(student.getCreatedDate());
+        }
+        return out;
+    }
+    
+    private static Student[] decodeStudents(Decoder in) throws IOException {
+        Student[] students = new Student[in.count];
+        for (int i = 0; i < students.length; i++) {
+            Student.Builder builder = new Student.Builder()
+                    .id(in.readString())
+                    .regNo(in.readString())
+                    .fullName(in.readString())
+                    .email(in.readString());
+            boolean active = in.readBoolean();
+            students[i] = builder.createdDate(in.readTimestamp()).build();
+            students[i].setActive(active);
+        }
+        in.expectEnd();
+        return students;
+    }
+    
+    private static BinaryEncoder encodeInstructors(List<Instructor> instructors) {
+        Dictionary departments = new Dictionary();
+        instructors.forEach(i -> departments.add(i.getDepartment()));
+        
+        BinaryEncoder out = new BinaryEncoder();
+        departments.writeTo(out);
+        for (Instructor instructor : instructors) {
+            out.writeString(instructor.getId());
+            out.writeString(instructor.getFullName());
+            out.writeString(instructor.getEmail());
+            out.writeVarint(departments.codeOf(instructor.getDepartment()));
+            out.writeNullableString(instructor.getFacultyId());
+            out.writeBoolean(instructor.isActive());
+            out.writeTimestamp(instructor.getCreatedDate());
+        }
+        return out;
+    }
+    
+    private static Instructor[] decodeInstructors(Decoder in) throws IOException {
+        String[] departments = in.readDictionary();
+        Instructor[] instructors = new Instructor[in.count];
+        for (int i = 0; i < instructors.length; i++) {
+            String id = in.readString();
+            String fullName = in.readString();
+            String email = in.readString();
+            String department = in.lookup(departments);
+            String facultyId = in.readNullableString();
+            boolean active = in.readBoolean();
+            instructors[i] = new Instructor(id, fullName, email, department, facultyId, in.readTimestamp());
+            instructors[i].setActive(active);
+        }
+        in.expectEnd();
+        return instructors;
+    }
+    
+    private static BinaryEncoder encodeCourses(List<Course> courses, Map<Instructor, Integer> instructorIndex) {
+        Dictionary departments = new Dictionary();
+        Dictionary prefixes = new Dictionary();
+        Dictionary semesters = new Dictionary();
+        for (Course course : courses) {
+            departments.add(course.getDepartment());
+            prefixes.add(canonicalPrefix(course.getCode()));
+            semesters.add(course.getSemester() != null ? course.getSemester().name() : null);
+        }
+        
+        BinaryEncoder out = new BinaryEncoder();
+        departments.writeTo(out);
+        prefixes.writeTo(out);
+        semesters.writeTo(out);
+        for (Course course : courses) {
+            // Codes are stored as prefix + number; anything that would not round-trip that way is kept verbatim
+            String prefix = canonicalPrefix(course.getCode());
+            out.writeVarint(prefixes.codeOf(prefix));
+            if (prefix != null) {
+                out.writeVarint(course.getCode().getNumber());
+            } else {
+                out.writeString(course.getCode().getCode());
+            }
+            out.writeString(course.getTitle());
+            out.writeZigZag(course.getCredits());
+            Instructor instructor = course.getInstructor();
+            out.writeVarint(instructor != null ? instructorIndex.get(instructor) + 1 : 0);
+            out.writeVarint(semesters.codeOf(course.getSemester() != null ? course.getSemester().name() : null));
+            out.writeVarint(departments.codeOf(course.getDepartment()));
+            out.writeBoolean(course.isActive());
+        }
+        return out;
+    }
+    
+    private static Course[] decodeCourses(Decoder in, Instructor[] instructors) {
+        try {
+            String[] departments = in.readDictionary();
+            String[] prefixes = in.readDictionary();
+            Semester[] semesters = enumDictionary(in.readDictionary(), Semester.class, in);
+            
+            Course[] courses = new Course[in.count];
+            for (int i = 0; i < courses.length; i++) {
+                String prefix = in.lookup(prefixes);
+                String code = prefix != null ? prefix + in.readVarint() : in.readString();
+                String title = in.readString();
+                int credits = in.readZigZag();
+                int instructor = in.readVarint();
+                if (instructor > instructors.length) {
+                    throw in.corrupt("instructor reference " + instructor);
+                }
+                courses[i] = new Course.Builder()
+                        .code(new CourseCode(code))
+                        .title(title)
+                        .credits(credits)
+                        .instructor(instructor > 0 ? instructors[instructor - 1] : null)
+                        .semester(in.lookup(semesters))
+                        .department(in.lookup(departments))
+                        .build();
+                courses[i].setActive(in.readBoolean());
+            }
+            in.expectEnd();
+            return courses;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new CompletionException(e);
+        }
+    }
+    
+    // Sorted by student so the student reference can be stored as a small delta
+    private static BinaryEncoder encodeEnrollments(List<Enrollment> enrollments,
+                                             Map<Student, Integer> studentIndex, Map<Course, Integer> courseIndex) {
+        int[] studentOf = new int[enrollments.size()];
+        List<Integer> rows = new ArrayList<>(enrollments.size());
+        for (int i = 0; i < studentOf.length; i++) {
+            studentOf[i] = studentIndex.get(enrollments.get(i).getStudent());
+            rows.add(i);
+        }
+        rows.sort(Comparator.comparingInt(row -> studentOf[row]));
+        
+        Dictionary grades = new Dictionary();
+        enrollments.forEach(e -> grades.add(e.getGrade().name()));
+        
+        BinaryEncoder out = new BinaryEncoder();
+        grades.writeTo(out);
+        int previousStudent = 0;
+        for (int row : rows) {
+            Enrollment enrollment = enrollments.get(row);
+            out.writeVarint(studentOf[row] - previousStudent);
+            previousStudent = studentOf[row];
+            out.writeVarint(courseIndex.get(enrollment.getCourse()));
+            out.writeVarint(grades.codeOf(enrollment.getGrade().name()));
+            out.writeTimestamp(enrollment.getEnrollmentDate());
+        }
+        return out;
+    }
+    
+    // Students are always new objects, so enrollments can only clash within the snapshot
+    private static Enrollment[] decodeEnrollments(Decoder in, Student[] students, Course[] courses)
+            throws IOException {
+        Grade[] grades = enumDictionary(in.readDictionary(), Grade.class, in);
+        Enrollment[] enrollments = new Enrollment[in.count];
+        Map<Student, Set<Course>> seen = new IdentityHashMap<>();
+        int student = 0;
+        for (int i = 0; i < in.count; i++) {
+            student += in.readVarint();
+            int course = in.readVarint();
+            if (student >= students.length || course >= courses.length) {
+                throw in.corrupt("enrollment reference " + student + "/" + course);
+            }
+            Grade grade = in.lookup(grades);
+            if (grade == null) {
+                throw in.corrupt("missing grade");
+            }
+            if (!seen.computeIfAbsent(students[student], s -> new HashSet<>()).add(courses[course])) {
+                throw in.corrupt("duplicate enrollment " + student + "/" + course);
+            }
+            enrollments[i] = new Enrollment(students[student], courses[course], in.readTimestamp(), grade);
+        }
+        in.expectEnd();
+        return enrollments;
+    }
+    
+    // Only active records hold their id or code; each may be taken once, here or in the services
+    private void checkConflicts(Student[] students, Course[] courses, Path path) throws IOException {
+        Set<String> ids = new HashSet<>();
+        for (Student student : students) {
+            if (student.isActive() && (!ids.add(student.getId()) ||
+                    studentService.findStudentById(student.getId()) != null)) {
+                throw new IOException("Snapshot " + path + " conflicts with existing data: Student with ID " +
+                                      student.getId() + " already exists");
+            }
+        }
+        Set<CourseCode> codes = new HashSet<>();
+        for (Course course : courses) {
+            if (course.isActive() && (!codes.add(course.getCode()) ||
+                    courseService.findCourseByCode(course.getCode()) != null)) {
+                throw new IOException("Snapshot " + path + " conflicts with existing data: Course with code " +
+                                      course.getCode() + " already exists");
+            }
+        }
+    }
+    
+    // ---- File layout ----
+    
+    private static ByteBuffer header(List<Section> sections) {
+        ByteBuffer header = ByteBuffer.allocate(headerSize(sections.size()));
+        header.put(MAGIC).putInt(VERSION).putInt(sections.size());
+        long offset = header.capacity();
+        for (Section section : sections) {
+            header.putInt(section.id)
+                  .putInt(section.count)
+                  .putLong(offset)
+                  .putInt(section.body.size())
+                  .putInt(section.body.crc());
+            offset += section.body.size();
+        }
+        header.putInt(crc(header.array(), 0, header.position()));
+        return header.flip();
+    }
+    
+    private static int headerSize(int sectionCount) {
+        return MAGIC.length + 4 + 4 + sectionCount * SECTION_ENTRY_BYTES + 4;
+    }
+    
+    private static Map<Integer, SectionEntry> readTable(FileChannel channel, Path path) throws IOException {
+        ByteBuffer fixed = readFully(channel, 0, MAGIC.length + 8);
+        byte[] magic = new byte[MAGIC.length];
+        fixed.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException(path + " is not a CCRM snapshot");
+        }
+        int version = fixed.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + " in " + path);
+        }
+        int sectionCount = fixed.getInt();
+        if (sectionCount < 0 || headerSize(sectionCount) > channel.size()) {
+            throw new IOException("Corrupt snapshot header in " + path);
+        }
+        
+        ByteBuffer header = readFully(channel, 0, headerSize(sectionCount));
+        int storedCrc = header.getInt(header.capacity() - 4);
+        if (crc(header.array(), 0, header.capacity() - 4) != storedCrc) {
+            throw new IOException("Snapshot header checksum mismatch in " + path);
+        }
+        
+        header.position(MAGIC.length + 8);
+        Map<Integer, SectionEntry> table = new HashMap<>();
+        for (int i = 0; i < sectionCount; i++) {
+            SectionEntry entry = new SectionEntry(header.getInt(), header.getInt(), header.getLong(),
+                                                  header.getInt(), header.getInt());
+            if (entry.count < 0 || entry.length < 0 || entry.offset < 0 ||
+                    entry.offset + entry.length > channel.size()) {
+                throw new IOException("Corrupt snapshot section table in " + path);
+            }
+            // Unknown section ids are skipped, so newer writers can add sections
+            table.put(entry.id, entry);
+        }
+        for (int required : new int[] {STUDENTS, INSTRUCTORS, COURSES, ENROLLMENTS}) {
+            if (!table.containsKey(required)) {
+                throw new IOException("Snapshot " + path + " is missing section " + required);
+            }
+        }
+        return table;
+    }
+    
+    private static Decoder read(FileChannel channel, Map<Integer, SectionEntry> table, int id) throws IOException {
+        SectionEntry entry = table.get(id);
+        ByteBuffer body = readFully(channel, entry.offset, entry.length);
+        if (crc(body.array(), 0, entry.length) != entry.crc) {
+            throw new IOException("Snapshot section " + id + " checksum mismatch");
+        }
+        return new Decoder(id, entry.count, body.array(), entry.length);
+    }
+    
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Snapshot is truncated");
+            }
+        }
+        return buffer.flip();
+    }
+    
+    private static int crc(byte[] bytes, int offset, int length) {
+        return BinaryEncoder.crc(bytes, offset, length);
+    }
+    
+    // ---- Helpers ----
+    
+    @FunctionalInterface
+    private interface IOSupplier<T> {
+        T get() throws IOException;
+    }
+    
+    private <T> CompletableFuture<T> async(IOSupplier<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.get();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+    
+    private static <T> T join(CompletableFuture<T> future, Path path) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Error loading snapshot " + path + ": " + cause.getMessage(), cause);
+        }
+    }
+    
+    private static <T> Map<T, Integer> indexOf(List<T> items) {
+        Map<T, Integer> index = new IdentityHashMap<>(items.size() * 2);
+        for (int i = 0; i < items.size(); i++) {
+            index.put(items.get(i), i);
+        }
+        return index;
+    }
+    
+    // Leading letters of the code, when the code is exactly those letters plus its number
+    private static String canonicalPrefix(CourseCode code) {
+        String text = code.getCode();
+        int i = 0;
+        while (i < text.length() && Character.isLetter(text.charAt(i))) {
+            i++;
+        }
+        String prefix = text.substring(0, i);
+        return text.equals(prefix + code.getNumber()) ? prefix : null;
+    }
+    
+    // Enum constants are stored by name so reordering an enum does not corrupt old snapshots
+    private static <E extends Enum<E>> E[] enumDictionary(String[] names, Class<E> type, Decoder in)
+            throws IOException {
+        @SuppressWarnings("unchecked")
+        E[] values = (E[]) Array.newInstance(type, names.length);
+        for (int i = 0; i < names.length; i++) {
+            try {
+                values[i] = Enum.valueOf(type, names[i]);
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw in.corrupt("unknown " + type.getSimpleName() + " " + names[i]);
+            }
+        }
+        return values;
+    }
+    
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+    
+    private static class Section {
+        private final int id;
+        private final int count;
+        private final BinaryEncoder body;
+        
+        Section(int id, int count, BinaryEncoder body) {
+            this.id = id;
+            this.count = count;
+            this.body = body;
+        }
+    }
+    
+    private static class SectionEntry {
+        private final int id;
+        private final int count;
+        private final long offset;
+        private final int length;
+        private final int crc;
+        
+        SectionEntry(int id, int count, long offset, int length, int crc) {
+            this.id = id;
+            this.count = count;
+            this.offset = offset;
+            this.length = length;
+            this.crc = crc;
+        }
+    }
+    
+    /**
+     * Distinct values in first-seen order. Code 0 means null, value i is stored as i + 1.
+     */
+    private static class Dictionary {
+        private final Map<String, Integer> codes = new LinkedHashMap<>();
+        
+        void add(String value) {
+            if (value != null) {
+                codes.putIfAbsent(value, codes.size() + 1);
+            }
+        }
+        
+        int codeOf(String value) {
+            return value != null ? codes.get(value) : 0;
+        }
+        
+        void writeTo(BinaryEncoder out) {
+            out.writeVarint(codes.size());
+            codes.keySet().forEach(out::writeString);
+        }
+    }
+    
+    // A checksummed section body together with its record count from the section table
+    private static class Decoder extends BinaryDecoder {
+        private final int count;
+        
+        Decoder(int section, int count, byte[] bytes, int limit) {
+            super("snapshot section " + section, bytes, 0, limit);
+            this.count = count;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Student;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a bulk enrollment: how many rows were committed and why each
+ * rejected row was turned down. Rejections are reported, not thrown.
+ */
+public class BulkEnrollmentResult {
+    
+    public enum Reason {
+        DUPLICATE, CREDIT_LIMIT, INVALID
+    }
+    
+    public static class Rejection {
+        private final int row;
+        private final Student student;
+        private final Course course;
+        private final Reason reason;
+        private final String message;
+        
+        public Rejection(int row, Student student, Course course, Reason reason, String message) {
+            this.row = row;
+            this.student = student;
+            this.course = course;
+            this.reason = reason;
+            this.message = message;
+        }
+        
+        // Getters
+        public int getRow() { return row; }
+        public Student getStudent() { return student; }
+        public Course getCourse() { return course; }
+        public Reason getReason() { return reason; }
+        public String getMessage() { return message; }
+        
+        @Override
+        public String toString() {
+            return String.format("Rejection{row=%d, reason=%s, message='%s'}", row, reason, message);
+        }
+    }
+    
+    private final int requested;
+    private final int accepted;
+    private final List<Rejection> rejections;
+    
+    public BulkEnrollmentResult(int requested, int accepted, List<Rejection> rejections) {
+        this.requested = requested;
+        this.accepted = accepted;
+        this.rejections = Collections.unmodifiableList(rejections);
+    }
+    
+    public int getRequested() { return requested; }
+    public int getAccepted() { return accepted; }
+    public int getRejected() { return rejections.size(); }
+    public List<Rejection> getRejections() { return rejections; }
+    public boolean isFullySuccessful() { return rejections.isEmpty(); }
+    
+    @Override
+    public String toString() {
+        return String.format("BulkEnrollmentResult{requested=%d, accepted=%d, rejected=%d}", 
+                           requested, accepted, rejections.size());
+    }
+}
\ No newline at end of file
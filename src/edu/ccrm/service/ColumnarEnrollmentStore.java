@@ -0,0 +1,426 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Student;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Column-oriented enrollment storage for very large (historical) volumes.
+ * Each row is four primitives spread over parallel arrays: student ordinal, course ordinal,
+ * grade ordinal and the enrollment time in epoch seconds. Arrays grow in fixed-size segments,
+ * so appending never copies existing rows. Students and courses are dictionary-encoded to
+ * dense ordinals, each with a growable list of its row numbers, so one student's GPA or one
+ * course's roster touches only those rows; whole-store queries are plain loops over the arrays.
+ * 
+ * Enrollment times are LocalDateTime values, stored as if they were UTC.
+ */
+public class ColumnarEnrollmentStore {
+    private static final int SEGMENT_SHIFT = 16;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final byte REMOVED = -1;
+    private static final byte NOT_GRADED = (byte) Grade.NOT_GRADED.ordinal();
+    private static final Grade[] GRADES = Grade.values();
+    
+    // Grade points indexed by Grade.ordinal()
+    private static final double[] POINTS = new double[GRADES.length];
+    static {
+        for (Grade grade : GRADES) {
+            POINTS[grade.ordinal()] = grade.getPoints();
+        }
+    }
+    
+    private int[][] studentColumn = new int[1][];
+    private int[][] courseColumn = new int[1][];
+    private byte[][] gradeColumn = new byte[1][];
+    private long[][] epochColumn = new long[1][];
+    private int rowCount;
+    private int liveCount;
+    
+    // Dictionaries: entity <-> dense ordinal
+    private final List<Student> students = new ArrayList<>();
+    private final Map<Student, Integer> studentOrdinals = new HashMap<>();
+    private final List<Course> courses = new ArrayList<>();
+    private final Map<Course, Integer> courseOrdinals = new HashMap<>();
+    // Row numbers per ordinal, removed rows included (they are skipped like in the columns)
+    private final List<RowList> studentRows = new ArrayList<>();
+    private final List<RowList> courseRows = new ArrayList<>();
+    
+    private final RowIndex rowIndex = new RowIndex();
+    
+    /**
+     * Append one enrollment row and return its row number
+     */
+    public synchronized int append(Student student, Course course, Grade grade, LocalDateTime enrollmentDate) {
+        int studentOrdinal = encode(student, students, studentOrdinals, studentRows);
+        int courseOrdinal = encode(course, courses, courseOrdinals, courseRows);
+        long key = key(studentOrdinal, courseOrdinal);
+        if (rowIndex.get(key) >= 0) {
+            throw new IllegalArgumentException("Enrollment already stored for student " + 
+                                             student.getRegNo() + " in course " + course.getCode());
+        }
+        
+        int row = rowCount;
+        int segment = row >>> SEGMENT_SHIFT;
+        if (segment == studentColumn.length) {
+            int grown = segment * 2;
+            studentColumn = Arrays.copyOf(studentColumn, grown);
+            courseColumn = Arrays.copyOf(courseColumn, grown);
+            gradeColumn = Arrays.copyOf(gradeColumn, grown);
+            epochColumn = Arrays.copyOf(epochColumn, grown);
+        }
+        if (studentColumn[segment] == null) {
+            studentColumn[segment] = new int[SEGMENT_SIZE];
+            courseColumn[segment] = new int[SEGMENT_SIZE];
+            gradeColumn[segment] = new byte[SEGMENT_SIZE];
+            epochColumn[segment] = new long[SEGMENT_SIZE];
+        }
+        
+        int offset = row & SEGMENT_MASK;
+        studentColumn[segment][offset] = studentOrdinal;
+        courseColumn[segment][offset] = courseOrdinal;
+        gradeColumn[segment][offset] = (byte) grade.ordinal();
+        epochColumn[segment][offset] = enrollmentDate.toEpochSecond(ZoneOffset.UTC);
+        rowIndex.put(key, row);
+        studentRows.get(studentOrdinal).add(row);
+        courseRows.get(courseOrdinal).add(row);
+        rowCount++;
+        liveCount++;
+        return row;
+    }
+    
+    /**
+     * Whether a live or historical row is stored for the pair
+     */
+    public synchronized boolean contains(Student student, Course course) {
+        return rowOf(student, course) >= 0;
+    }
+    
+    public synchronized boolean setGrade(Student student, Course course, Grade grade) {
+        int row = rowOf(student, course);
+        if (row < 0) {
+            return false;
+        }
+        gradeColumn[row >>> SEGMENT_SHIFT][row & SEGMENT_MASK] = (byte) grade.ordinal();
+        return true;
+    }
+    
+    /**
+     * Tombstone the row; its slot is skipped by every query
+     */
+    public synchronized boolean remove(Student student, Course course) {
+        int row = rowOf(student, course);
+        if (row < 0) {
+            return false;
+        }
+        gradeColumn[row >>> SEGMENT_SHIFT][row & SEGMENT_MASK] = REMOVED;
+        rowIndex.remove(key(studentOrdinals.get(student), courseOrdinals.get(course)));
+        liveCount--;
+        return true;
+    }
+    
+    public synchronized Grade getGrade(Student student, Course course) {
+        int row = rowOf(student, course);
+        return row >= 0 ? GRADES[gradeColumn[row >>> SEGMENT_SHIFT][row & SEGMENT_MASK]] : null;
+    }
+    
+    public synchronized LocalDateTime getEnrollmentDate(Student student, Course course) {
+        int row = rowOf(student, course);
+        if (row < 0) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(epochColumn[row >>> SEGMENT_SHIFT][row & SEGMENT_MASK], 0, ZoneOffset.UTC);
+    }
+    
+    /**
+     * GPA of one student, weighted by course credits and ignoring ungraded rows
+     */
+    public synchronized double calculateGPA(Student student) {
+        Integer found = studentOrdinals.get(student);
+        if (found == null) {
+            return 0.0;
+        }
+        RowList rows = studentRows.get(found);
+        double totalPoints = 0.0;
+        int totalCredits = 0;
+        for (int r = 0; r < rows.size; r++) {
+            int row = rows.rows[r];
+            byte grade = gradeColumn[row >>> SEGMENT_SHIFT][row & SEGMENT_MASK];
+            if (grade != REMOVED && grade != NOT_GRADED) {
+                int courseCredits = courses.get(courseColumn[row >>> SEGMENT_SHIFT][row & SEGMENT_MASK]).getCredits();
+                totalPoints += POINTS[grade] * courseCredits;
+                totalCredits += courseCredits;
+            }
+        }
+        return totalCredits > 0 ? totalPoints / totalCredits : 0.0;
+    }
+    
+    /**
+     * GPA of every stored student in one pass, indexed by student ordinal
+     */
+    public synchronized double[] calculateAllGPAs() {
+        int[] credits = courseCredits();
+        double[] points = new double[students.size()];
+        int[] gradedCredits = new int[students.size()];
+        for (int segment = 0; segment * SEGMENT_SIZE < rowCount; segment++) {
+            int[] studentRows = studentColumn[segment];
+            int[] courseRows = courseColumn[segment];
+            byte[] gradeRows = gradeColumn[segment];
+            int end = Math.min(SEGMENT_SIZE, rowCount - segment * SEGMENT_SIZE);
+            for (int i = 0; i < end; i++) {
+                byte grade = gradeRows[i];
+                if (grade != REMOVED && grade != NOT_GRADED) {
+                    int courseCredits = credits[courseRows[i]];
+                    points[studentRows[i]] += POINTS[grade] * courseCredits;
+                    gradedCredits[studentRows[i]] += courseCredits;
+                }
+            }
+        }
+        for (int s = 0; s < points.length; s++) {
+            points[s] = gradedCredits[s] > 0 ? points[s] / gradedCredits[s] : 0.0;
+        }
+        return points;
+    }
+    
+    /**
+     * Live rows counted by course and grade in one pass, segments scanned in parallel.
+     * Each value is indexed by Grade.ordinal(). The workers read the columns without the
+     * monitor, which is safe because this thread holds it, so no row changes meanwhile.
+     */
+    public synchronized Map<Course, long[]> countGradesByCourse() {
+        int courseCount = courses.size();
+        int segments = (rowCount + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT;
+        int rows = rowCount;
+        long[] counts = IntStream.range(0, segments).parallel()
+            .mapToObj(segment -> {
+                // Flat [course * grades + grade] counters, one set per segment
+                long[] local = new long[courseCount * GRADES.length];
+                int[] courseRows = courseColumn[segment];
+                byte[] gradeRows = gradeColumn[segment];
+                int end = Math.min(SEGMENT_SIZE, rows - segment * SEGMENT_SIZE);
+                for (int i = 0; i < end; i++) {
+                    byte grade = gradeRows[i];
+                    if (grade != REMOVED) {
+                        local[courseRows[i] * GRADES.length + grade]++;
+                    }
+                }
+                return local;
+            })
+            .reduce((a, b) -> {
+                for (int i = 0; i < a.length; i++) {
+                    a[i] += b[i];
+                }
+                return a;
+            })
+            .orElseGet(() -> new long[courseCount * GRADES.length]);
+        
+        Map<Course, long[]> byCourse = new HashMap<>();
+        for (int c = 0; c < courseCount; c++) {
+            long[] gradeCounts = Arrays.copyOfRange(counts, c * GRADES.length, (c + 1) * GRADES.length);
+            if (Arrays.stream(gradeCounts).anyMatch(n -> n > 0)) {
+                byCourse.put(courses.get(c), gradeCounts);
+            }
+        }
+        return byCourse;
+    }
+    
+    /**
+     * Students enrolled in the course, in row order
+     */
+    public synchronized List<Student> getRoster(Course course) {
+        Integer found = courseOrdinals.get(course);
+        List<Student> roster = new ArrayList<>();
+        if (found == null) {
+            return roster;
+        }
+        RowList rows = courseRows.get(found);
+        for (int r = 0; r < rows.size; r++) {
+            int row = rows.rows[r];
+            if (gradeColumn[row >>> SEGMENT_SHIFT][row & SEGMENT_MASK] != REMOVED) {
+                roster.add(students.get(studentColumn[row >>> SEGMENT_SHIFT][row & SEGMENT_MASK]));
+            }
+        }
+        return roster;
+    }
+    
+    /**
+     * Pass each student stored for the course, with the row's grade, to the action;
+     * the action runs under this store's monitor and must not call back into it
+     */
+    public synchronized void forEachRow(Course course, BiConsumer<Student, Grade> action) {
+        Integer found = courseOrdinals.get(course);
+        if (found == null) {
+            return;
+        }
+        RowList rows = courseRows.get(found);
+        for (int r = 0; r < rows.size; r++) {
+            int row = rows.rows[r];
+            byte grade = gradeColumn[row >>> SEGMENT_SHIFT][row & SEGMENT_MASK];
+            if (grade != REMOVED) {
+                action.accept(students.get(studentColumn[row >>> SEGMENT_SHIFT][row & SEGMENT_MASK]), GRADES[grade]);
+            }
+        }
+    }
+    
+    public synchronized int studentOrdinal(Student student) {
+        return studentOrdinals.getOrDefault(student, -1);
+    }
+    
+    public synchronized Student studentAt(int ordinal) {
+        return students.get(ordinal);
+    }
+    
+    public synchronized int getStudentCount() {
+        return students.size();
+    }
+    
+    /**
+     * Number of live (not removed) rows
+     */
+    public synchronized int size() {
+        return liveCount;
+    }
+    
+    private int rowOf(Student student, Course course) {
+        Integer studentOrdinal = studentOrdinals.get(student);
+        Integer courseOrdinal = courseOrdinals.get(course);
+        if (studentOrdinal == null || courseOrdinal == null) {
+            return -1;
+        }
+        return rowIndex.get(key(studentOrdinal, courseOrdinal));
+    }
+    
+    // Credits are read from the live Course objects so credit changes apply to every row
+    private int[] courseCredits() {
+        int[] credits = new int[courses.size()];
+        for (int c = 0; c < credits.length; c++) {
+            credits[c] = courses.get(c).getCredits();
+        }
+        return credits;
+    }
+    
+    private static <T> int encode(T entity, List<T> dictionary, Map<T, Integer> ordinals, List<RowList> rowLists) {
+        Integer ordinal = ordinals.get(entity);
+        if (ordinal == null) {
+            ordinal = dictionary.size();
+            dictionary.add(entity);
+            ordinals.put(entity, ordinal);
+            rowLists.add(new RowList());
+        }
+        return ordinal;
+    }
+    
+    /**
+     * Growable int array of row numbers, in row order
+     */
+    private static final class RowList {
+        private int[] rows = new int[4];
+        private int size;
+        
+        void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+    }
+    
+    private static long key(int studentOrdinal, int courseOrdinal) {
+        return ((long) studentOrdinal << 32) | (courseOrdinal & 0xFFFFFFFFL);
+    }
+    
+    /**
+     * Open-addressing (student, course) -> row map on primitive arrays, so the
+     * index does not allocate a boxed entry per row
+     */
+    private static final class RowIndex {
+        private static final long EMPTY = -1L;
+        private long[] keys = newKeys(1024);
+        private int[] rows = new int[1024];
+        private int size;
+        
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return rows[i];
+                }
+            }
+            return -1;
+        }
+        
+        void put(long key, int row) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (keys[i] != EMPTY && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == EMPTY) {
+                size++;
+            }
+            keys[i] = key;
+            rows[i] = row;
+        }
+        
+        // Backward-shift deletion keeps probe chains intact without tombstones
+        void remove(long key) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (keys[i] != key) {
+                if (keys[i] == EMPTY) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            size--;
+            int gap = i;
+            for (int j = (gap + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+                int home = hash(keys[j]) & mask;
+                // Move the entry back if its home slot is not in (gap, j]
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    keys[gap] = keys[j];
+                    rows[gap] = rows[j];
+                    gap = j;
+                }
+            }
+            keys[gap] = EMPTY;
+        }
+        
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldRows = rows;
+            keys = newKeys(oldKeys.length * 2);
+            rows = new int[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    put(oldKeys[i], oldRows[i]);
+                }
+            }
+        }
+        
+        private static long[] newKeys(int capacity) {
+            long[] keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+        
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
\ No newline at end of file
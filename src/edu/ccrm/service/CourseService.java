@@ -8,49 +8,117 @@ import edu.ccrm.exception.DuplicateCourseException;
 import edu.ccrm.exception.CourseNotFoundException;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class CourseService implements Searchable<Course> {
-    private List<Course> courses;
+    // Queryable fields
+    public static final Query.Field<Course, String> CODE = new Query.Field<>("code", c -> c.getCode().getCode());
+    public static final Query.Field<Course, String> TITLE = new Query.Field<>("title", Course::getTitle);
+    public static final Query.Field<Course, Integer> CREDITS = new Query.Field<>("credits", Course::getCredits);
+    public static final Query.Field<Course, String> DEPARTMENT = new Query.Field<>("department", Course::getDepartment);
+    public static final Query.Field<Course, Semester> SEMESTER = new Query.Field<>("semester", Course::getSemester);
+    public static final Query.Field<Course, Instructor> INSTRUCTOR = new Query.Field<>("instructor", Course::getInstructor);
+    public static final Query.Field<Course, Boolean> ACTIVE = new Query.Field<>("active", Course::isActive);
+    
+    // Total sort orders for paged listings (ties broken by code so keyset paging is stable)
+    public static final Comparator<Course> BY_CODE = Comparator.comparing((Course c) -> c.getCode().getCode());
+    public static final Comparator<Course> BY_TITLE = Comparator.comparing(Course::getTitle).thenComparing(BY_CODE);
+    public static final Comparator<Course> BY_CREDITS = Comparator.comparingInt(Course::getCredits).thenComparing(BY_CODE);
+    
+    private Map<CourseCode, Course> activeByCode;
+    // Active courses in registration order, so findAll and stream list them as the original
+    // list did; only changed inside activeByCode.compute for the course's code
+    private final Map<Long, Course> activeInOrder = new ConcurrentSkipListMap<>();
+    private final Map<CourseCode, Long> registrationSeq = new ConcurrentHashMap<>();
+    private final AtomicLong nextSeq = new AtomicLong();
+    // Ordered index over active codes for prefix and range queries; maintained with the above
+    private final NavigableMap<String, Course> activeByCodeOrdered = new ConcurrentSkipListMap<>();
+    private Queue<Course> inactiveCourses;
+    // See MutationListener
+    private final List<MutationListener> listeners = new CopyOnWriteArrayList<>();
+    
+    // Secondary indexes, holding active courses only. Buckets are sorted by code so
+    // concurrent readers iterate them safely and listings come back in a stable order.
+    private Map<Semester, Set<Course>> bySemester;
+    private Map<String, Set<Course>> byDepartment;
+    private Map<Instructor, Set<Course>> byInstructor;
+    // Credit values are few, so empty buckets are kept rather than dropped
+    private NavigableMap<Integer, Set<Course>> byCredits;
     
     public CourseService() {
-        this.courses = new ArrayList<>();
+        this.activeByCode = new ConcurrentHashMap<>();
+        this.inactiveCourses = new ConcurrentLinkedQueue<>();
+        this.byDepartment = new ConcurrentHashMap<>();
+        this.byInstructor = new ConcurrentHashMap<>();
+        this.byCredits = new ConcurrentSkipListMap<>();
+        
+        // The EnumMap itself is never modified after construction, only its buckets
+        this.bySemester = new EnumMap<>(Semester.class);
+        for (Semester semester : Semester.values()) {
+            bySemester.put(semester, newBucket());
+        }
     }
     
     public void addCourse(Course course) throws DuplicateCourseException {
-        if (findCourseByCode(course.getCode()) != null) {
+        beforeMutation();
+        // A deactivated course no longer holds its code, so it never clashes with an active one
+        if (!course.isActive()) {
+            inactiveCourses.add(course);
+            listeners.forEach(l -> l.courseAdded(course));
+            afterMutation();
+            return;
+        }
+        boolean[] registered = new boolean[1];
+        activeByCode.computeIfAbsent(course.getCode(), code -> {
+            long seq = nextSeq.incrementAndGet();
+            registrationSeq.put(code, seq);
+            activeInOrder.put(seq, course);
+            activeByCodeOrdered.put(code.getCode(), course);
+            registered[0] = true;
+            return course;
+        });
+        if (!registered[0]) {
             throw new DuplicateCourseException("Course with code " + course.getCode() + " already exists");
         }
-        courses.add(course);
+        synchronized (course) {
+            index(course);
+        }
+        listeners.forEach(l -> l.courseAdded(course));
+        afterMutation();
     }
     
     public Course findCourseByCode(CourseCode code) {
-        return courses.stream()
-                .filter(c -> c.getCode().equals(code) && c.isActive())
-                .findFirst()
-                .orElse(null);
+        return activeByCode.get(code);
     }
     
     public List<Course> findCoursesByInstructor(Instructor instructor) {
-        return courses.stream()
-                .filter(c -> c.getInstructor() != null && 
-                           c.getInstructor().equals(instructor) && c.isActive())
-                .collect(Collectors.toList());
+        return snapshot(byInstructor.get(instructor));
     }
     
     public List<Course> findCoursesBySemester(Semester semester) {
-        return courses.stream()
-                .filter(c -> c.getSemester() == semester && c.isActive())
-                .collect(Collectors.toList());
+        return snapshot(semester != null ? bySemester.get(semester) : null);
     }
     
     public List<Course> findCoursesByDepartment(String department) {
-        return courses.stream()
-                .filter(c -> c.getDepartment() != null && 
-                           c.getDepartment().equalsIgnoreCase(department) && c.isActive())
-                .collect(Collectors.toList());
+        return snapshot(department != null ? byDepartment.get(normalizeDepartment(department)) : null);
     }
     
     public void updateCourse(CourseCode code, String newTitle, int newCredits) throws CourseNotFoundException {
@@ -58,30 +126,302 @@ public class CourseService implements Searchable<Course> {
         if (course == null) {
             throw new CourseNotFoundException("Course with code " + code + " not found");
         }
-        course.setTitle(newTitle);
-        course.setCredits(newCredits);
+        beforeMutation();
+        synchronized (course) {
+            course.setTitle(newTitle);
+            // Credits are an index key; the re-check keeps a deactivated course unindexed
+            if (activeByCode.get(code) == course) {
+                unindexCredits(course);
+                course.setCredits(newCredits);
+                byCredits.computeIfAbsent(newCredits, c -> newBucket()).add(course);
+            } else {
+                course.setCredits(newCredits);
+            }
+            listeners.forEach(l -> l.courseUpdated(course));
+        }
+        afterMutation();
     }
     
-    public void deactivateCourse(CourseCode code) throws CourseNotFoundException {
+    /**
+     * Change a course's instructor and department, the fields the secondary indexes are
+     * keyed on, moving it between index buckets. Use this rather than the Course setters
+     * for a registered course, or its index entries go stale.
+     */
+    public void reassignCourse(CourseCode code, Instructor instructor, String department) 
+            throws CourseNotFoundException {
         Course course = findCourseByCode(code);
         if (course == null) {
             throw new CourseNotFoundException("Course with code " + code + " not found");
         }
-        course.setActive(false);
+        beforeMutation();
+        synchronized (course) {
+            // Re-check under the monitor, so a concurrent deactivation is never re-indexed
+            if (activeByCode.get(code) != course) {
+                throw new CourseNotFoundException("Course with code " + code + " not found");
+            }
+            unindex(course);
+            course.setInstructor(instructor);
+            course.setDepartment(department);
+            index(course);
+            listeners.forEach(l -> l.courseReassigned(course));
+        }
+        afterMutation();
+    }
+    
+    public void deactivateCourse(CourseCode code) throws CourseNotFoundException {
+        beforeMutation();
+        Course[] removed = new Course[1];
+        activeByCode.computeIfPresent(code, (k, active) -> {
+            activeInOrder.remove(registrationSeq.remove(k));
+            activeByCodeOrdered.remove(k.getCode());
+            removed[0] = active;
+            return null;
+        });
+        Course course = removed[0];
+        if (course == null) {
+            throw new CourseNotFoundException("Course with code " + code + " not found");
+        }
+        synchronized (course) {
+            unindex(course);
+            course.setActive(false);
+        }
+        inactiveCourses.add(course);
+        listeners.forEach(l -> l.courseDeactivated(course));
+        afterMutation();
+    }
+    
+    public void addMutationListener(MutationListener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+    
+    public void removeMutationListener(MutationListener listener) {
+        listeners.remove(listener);
+    }
+    
+    // Gives listeners (e.g. a failed journal) the chance to refuse a change before it is applied
+    private void beforeMutation() {
+        listeners.forEach(MutationListener::beforeMutation);
+    }
+    
+    // Called once the change is applied, with no lock of this service held
+    private void afterMutation() {
+        listeners.forEach(MutationListener::afterMutation);
+    }
+    
+    /**
+     * Snapshot of deactivated courses
+     */
+    public List<Course> findInactive() {
+        return List.copyOf(inactiveCourses);
     }
     
     @Override
     public List<Course> search(Predicate<Course> predicate) {
-        return courses.stream()
+        return stream()
                 .filter(predicate)
-                .filter(Course::isActive)
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Answer a structured query from the code and secondary indexes,
+     * scanning only when no indexed condition bounds the result
+     */
+    @Override
+    public List<Course> search(Query<Course> query) {
+        return stream(query).collect(Collectors.toList());
+    }
+    
+    @Override
+    public Stream<Course> stream() {
+        return activeInOrder.values().stream();
+    }
+    
+    @Override
+    public Stream<Course> stream(Query<Course> query) {
+        Collection<Course> candidates = Query.candidates(query, ACTIVE, this::lookup, this::lookupRange);
+        Stream<Course> source;
+        if (candidates != null) {
+            source = candidates.stream();
+        } else if (query.activeOnly(ACTIVE)) {
+            source = activeInOrder.values().stream();
+        } else {
+            source = Stream.concat(activeInOrder.values().stream(), inactiveCourses.stream());
+        }
+        return source.filter(query);
+    }
+    
+    // Codes never change, so pages continue after the last code seen
+    @Override
+    public Comparator<Course> getPagingOrder() {
+        return BY_CODE;
+    }
+    
+    // Default-order pages read the ordered code index from the cursor on and stop after
+    // limit + 1 rows; other orders fall back to the bounded heap over every row
+    @Override
+    public Page<Course> findPage(PageRequest<Course> request) {
+        return findPage(course -> true, request);
+    }
+    
+    @Override
+    public Page<Course> findPage(Predicate<Course> predicate, PageRequest<Course> request) {
+        PageRequest<Course> ordered = request.withDefaultSort(BY_CODE);
+        if (ordered.getSort() != BY_CODE) {
+            return Searchable.super.findPage(predicate, request);
+        }
+        return Page.ofOrdered(inCodeOrder(ordered.getAfter()).filter(predicate), ordered);
+    }
+    
+    // An indexed query has few candidates, which the heap orders cheaply
+    @Override
+    public Page<Course> findPage(Query<Course> query, PageRequest<Course> request) {
+        PageRequest<Course> ordered = request.withDefaultSort(BY_CODE);
+        if (ordered.getSort() != BY_CODE || !query.activeOnly(ACTIVE) ||
+                Query.candidates(query, ACTIVE, this::lookup, this::lookupRange) != null) {
+            return Searchable.super.findPage(query, request);
+        }
+        return Page.ofOrdered(inCodeOrder(ordered.getAfter()).filter(query), ordered);
+    }
+    
+    private Stream<Course> inCodeOrder(Course after) {
+        Map<String, Course> from = after != null ? 
+            activeByCodeOrdered.tailMap(after.getCode().getCode(), false) : activeByCodeOrdered;
+        return from.values().stream();
+    }
+    
     @Override
     public List<Course> findAll() {
-        return courses.stream()
-                .filter(Course::isActive)
-                .collect(Collectors.toList());
+        return new ArrayList<>(activeInOrder.values());
+    }
+    
+    private Collection<Course> lookup(Query.Field<Course, ?> field, Object value, boolean activeOnly) {
+        Collection<Course> active;
+        if (field == ACTIVE) {
+            if (Boolean.TRUE.equals(value)) {
+                return activeInOrder.values();
+            }
+            return activeOnly ? List.of() : inactiveCourses;
+        } else if (value == null) {
+            return null;
+        } else if (field == CODE) {
+            active = codeLookup((String) value);
+        } else if (field == SEMESTER) {
+            active = bySemester.get(value);
+        } else if (field == DEPARTMENT) {
+            active = byDepartment.get(normalizeDepartment((String) value));
+        } else if (field == INSTRUCTOR) {
+            active = byInstructor.get(value);
+        } else {
+            return null;
+        }
+        
+        List<Course> result = active != null ? new ArrayList<>(active) : new ArrayList<>();
+        if (!activeOnly) {
+            // Deactivated courses are not indexed; that list is expected to stay small
+            for (Course course : inactiveCourses) {
+                if (value.equals(field.get(course))) {
+                    result.add(course);
+                }
+            }
+        }
+        return result;
+    }
+    
+    // Code prefixes and ranges, credit ranges and semester ranges come from ordered indexes
+    private Collection<Course> lookupRange(Query.Field<Course, ?> field, Object from, Object to, 
+                                           boolean toInclusive, boolean activeOnly) {
+        List<Course> result = new ArrayList<>();
+        if (field == CODE) {
+            result.addAll(Query.between(activeByCodeOrdered, from, to, toInclusive).values());
+        } else if (field == CREDITS) {
+            Query.between(byCredits, from, to, toInclusive).values().forEach(result::addAll);
+        } else if (field == SEMESTER) {
+            int first = from != null ? ((Semester) from).ordinal() : 0;
+            int last = to != null ? ((Semester) to).ordinal() - (toInclusive ? 0 : 1) : Semester.values().length - 1;
+            for (int i = first; i <= last; i++) {
+                result.addAll(bySemester.get(Semester.values()[i]));
+            }
+        } else {
+            return null;
+        }
+        if (!activeOnly) {
+            // A superset is enough; the query filters the deactivated ones afterwards
+            result.addAll(inactiveCourses);
+        }
+        return result;
+    }
+    
+    private List<Course> codeLookup(String code) {
+        try {
+            Course course = activeByCode.get(new CourseCode(code));
+            return course != null ? List.of(course) : List.of();
+        } catch (IllegalArgumentException e) {
+            // Not a well-formed code, so no course can carry it
+            return List.of();
+        }
+    }
+    
+    private void index(Course course) {
+        byCredits.computeIfAbsent(course.getCredits(), c -> newBucket()).add(course);
+        if (course.getSemester() != null) {
+            bySemester.get(course.getSemester()).add(course);
+        }
+        if (course.getDepartment() != null) {
+            addTo(byDepartment, normalizeDepartment(course.getDepartment()), course);
+        }
+        if (course.getInstructor() != null) {
+            addTo(byInstructor, course.getInstructor(), course);
+        }
+    }
+    
+    private void unindex(Course course) {
+        unindexCredits(course);
+        if (course.getSemester() != null) {
+            bySemester.get(course.getSemester()).remove(course);
+        }
+        if (course.getDepartment() != null) {
+            removeFrom(byDepartment, normalizeDepartment(course.getDepartment()), course);
+        }
+        if (course.getInstructor() != null) {
+            removeFrom(byInstructor, course.getInstructor(), course);
+        }
+    }
+    
+    // Null-safe: an update can run before addCourse has indexed the course
+    private void unindexCredits(Course course) {
+        Set<Course> bucket = byCredits.get(course.getCredits());
+        if (bucket != null) {
+            bucket.remove(course);
+        }
+    }
+    
+    // compute() runs atomically per key, so a bucket is never dropped while another thread adds to it
+    private static <K> void addTo(Map<K, Set<Course>> index, K key, Course course) {
+        index.compute(key, (k, bucket) -> {
+            Set<Course> target = bucket != null ? bucket : newBucket();
+            target.add(course);
+            return target;
+        });
+    }
+    
+    private static <K> void removeFrom(Map<K, Set<Course>> index, K key, Course course) {
+        index.computeIfPresent(key, (k, bucket) -> {
+            bucket.remove(course);
+            return bucket.isEmpty() ? null : bucket;
+        });
+    }
+    
+    private static Set<Course> newBucket() {
+        return new ConcurrentSkipListSet<>(BY_CODE);
+    }
+    
+    private static List<Course> snapshot(Set<Course> bucket) {
+        return bucket != null ? new ArrayList<>(bucket) : new ArrayList<>();
+    }
+    
+    // Case-insensitive key so "computer science" and "Computer Science" share a bucket,
+    // as with the equalsIgnoreCase scan this index replaced; RankingService matches with it too
+    static String normalizeDepartment(String department) {
+        return department.toLowerCase(Locale.ROOT);
     }
 }
\ No newline at end of file
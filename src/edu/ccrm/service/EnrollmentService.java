@@ -9,51 +9,239 @@ import edu.ccrm.exception.DuplicateEnrollmentException;
 import edu.ccrm.exception.MaxCreditLimitExceededException;
 import edu.ccrm.exception.EnrollmentNotFoundException;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
 
+/**
+ * Enrollment registry safe for concurrent registrations.
+ * All per-student state (adjacency list and credit counters) is guarded by a lock stripe
+ * chosen from the student id, so the duplicate check, the credit-limit check and the
+ * insert happen atomically while different students proceed in parallel.
+ * 
+ * The counters include running GPA totals (grade points x credits and graded credits,
+ * overall and per semester), kept up to date by every enroll, unenroll and grade change,
+ * so GPA reads are O(1). Historical rows loaded into the column store count in the GPA
+ * totals too, but not in the current-semester credit load. Totals use the credits recorded
+ * for each course when it was first counted; after trackCreditChanges, a credit change
+ * re-counts that course's rows under all stripes so the totals keep matching a full recompute.
+ */
 public class EnrollmentService {
-    private List<Enrollment> enrollments;
+    // Owns every Enrollment record. The per-course roster and each Student's own
+    // enrollment list are views holding references to these same objects.
+    private Map<EnrollmentKey, Enrollment> enrollments;
+    private Map<Course, Set<Enrollment>> byCourse;
+    // Running credit and grade totals per student, one slot per Semester plus one for unscheduled courses
+    private Map<Student, StudentTotals> totals;
+    // Credits each course is counted with; only changed while every stripe is held. Keyed by
+    // identity, since a new course may re-use the code of a deactivated one.
+    private final Map<Course, Integer> countedCredits = Collections.synchronizedMap(new IdentityHashMap<>());
+    private final Object[] studentLocks;
+    // Optional column store mirroring every enrollment, plus any historical rows loaded into it
+    private final ColumnarEnrollmentStore columnarStore;
+    // Called under the student's lock stripe, so each student's events stay in order
+    private final List<MutationListener> listeners = new CopyOnWriteArrayList<>();
     private static final int MAX_CREDITS_PER_SEMESTER = 18;
+    private static final int SEMESTER_SLOTS = Semester.values().length + 1;
     
     public EnrollmentService() {
-        this.enrollments = new ArrayList<>();
+        this(Runtime.getRuntime().availableProcessors() * 16);
+    }
+    
+    public EnrollmentService(int lockStripes) {
+        this(lockStripes, null);
+    }
+    
+    public EnrollmentService(int lockStripes, ColumnarEnrollmentStore columnarStore) {
+        this.columnarStore = columnarStore;
+        this.enrollments = new ConcurrentHashMap<>();
+        this.byCourse = new ConcurrentHashMap<>();
+        this.totals = new ConcurrentHashMap<>();
+        
+        // Round up to a power of two so the stripe can be picked with a mask
+        int stripes = Integer.highestOneBit(Math.max(1, lockStripes - 1)) << 1;
+        this.studentLocks = new Object[stripes];
+        for (int i = 0; i < stripes; i++) {
+            studentLocks[i] = new Object();
+        }
     }
     
     public void enrollStudent(Student student, Course course) 
             throws DuplicateEnrollmentException, MaxCreditLimitExceededException {
         
-        // Check for duplicate enrollment
-        if (isStudentEnrolled(student, course)) {
-            throw new DuplicateEnrollmentException(
-                "Student " + student.getRegNo() + " is already enrolled in course " + course.getCode());
-        }
+        EnrollmentKey key = new EnrollmentKey(student, course);
         
-        // Check credit limit
-        if (getCurrentSemesterCredits(student, course.getSemester()) + course.getCredits() > MAX_CREDITS_PER_SEMESTER) {
-            throw new MaxCreditLimitExceededException(
-                "Credit limit exceeded for student " + student.getRegNo() + 
-                ". Current: " + getCurrentSemesterCredits(student, course.getSemester()) + 
-                ", Attempting: " + course.getCredits() + 
-                ", Max allowed: " + MAX_CREDITS_PER_SEMESTER);
+        beforeMutation();
+        synchronized (lockFor(student)) {
+            // Check for duplicate enrollment
+            if (isEnrolled(key)) {
+                throw new DuplicateEnrollmentException(
+                    "Student " + student.getRegNo() + " is already enrolled in course " + course.getCode());
+            }
+            
+            // Check credit limit
+            int currentCredits = getCurrentSemesterCredits(student, course.getSemester());
+            int courseCredits = creditsOf(course);
+            if (currentCredits + courseCredits > MAX_CREDITS_PER_SEMESTER) {
+                throw new MaxCreditLimitExceededException(
+                    "Credit limit exceeded for student " + student.getRegNo() + 
+                    ". Current: " + currentCredits + 
+                    ", Attempting: " + courseCredits + 
+                    ", Max allowed: " + MAX_CREDITS_PER_SEMESTER);
+            }
+            
+            addEnrollment(key, new Enrollment(student, course));
         }
+        afterMutation();
+    }
+    
+    /**
+     * Put back a saved enrollment with its original date and grade. The credit limit is
+     * not re-checked: the record was admitted when it was first made.
+     */
+    public Enrollment restoreEnrollment(Student student, Course course, LocalDateTime enrollmentDate, Grade grade) 
+            throws DuplicateEnrollmentException {
+        EnrollmentKey key = new EnrollmentKey(student, course);
+        Enrollment enrollment = new Enrollment(student, course, enrollmentDate, grade);
         
-        Enrollment enrollment = new Enrollment(student, course);
-        enrollments.add(enrollment);
-        student.enrollInCourse(course);
+        beforeMutation();
+        synchronized (lockFor(student)) {
+            if (isEnrolled(key)) {
+                throw new DuplicateEnrollmentException(
+                    "Student " + student.getRegNo() + " is already enrolled in course " + course.getCode());
+            }
+            addEnrollment(key, enrollment);
+        }
+        afterMutation();
+        return enrollment;
     }
     
-    public void unenrollStudent(Student student, Course course) throws EnrollmentNotFoundException {
-        boolean removed = enrollments.removeIf(e -> 
-            e.getStudent().equals(student) && e.getCourse().equals(course));
+    /**
+     * Enroll many (student, course) pairs in one call. Rows are grouped by student and each
+     * group is validated in a single pass (duplicates against existing enrollments and earlier
+     * rows of the batch, then the per-semester credit limit) under that student's lock stripe.
+     * The accepted rows of a group are committed together; rejected rows are listed in the
+     * result with their batch position and reason instead of raising an exception.
+     */
+    public BulkEnrollmentResult enrollStudents(List<? extends Map.Entry<Student, Course>> requests) {
+        beforeMutation();
+        List<BulkEnrollmentResult.Rejection> rejections = new ArrayList<>();
+        Map<Student, List<Integer>> rowsByStudent = new LinkedHashMap<>();
         
-        if (!removed) {
-            throw new EnrollmentNotFoundException(
-                "Enrollment not found for student " + student.getRegNo() + " in course " + course.getCode());
+        for (int row = 0; row < requests.size(); row++) {
+            Map.Entry<Student, Course> request = requests.get(row);
+            if (request == null || request.getKey() == null || request.getValue() == null) {
+                rejections.add(new BulkEnrollmentResult.Rejection(row, null, null, 
+                    BulkEnrollmentResult.Reason.INVALID, "Student and course are required"));
+                continue;
+            }
+            rowsByStudent.computeIfAbsent(request.getKey(), s -> new ArrayList<>()).add(row);
+        }
+        
+        int accepted = 0;
+        for (Map.Entry<Student, List<Integer>> group : rowsByStudent.entrySet()) {
+            Student student = group.getKey();
+            List<EnrollmentKey> toCommit = new ArrayList<>(group.getValue().size());
+            
+            synchronized (lockFor(student)) {
+                StudentTotals existing = totals.get(student);
+                int[] credits = existing != null ? existing.credits.clone() : new int[SEMESTER_SLOTS];
+                Set<EnrollmentKey> batchKeys = new HashSet<>();
+                
+                for (int row : group.getValue()) {
+                    Course course = requests.get(row).getValue();
+                    EnrollmentKey key = new EnrollmentKey(student, course);
+                    int slot = slot(course.getSemester());
+                    int courseCredits = creditsOf(course);
+                    
+                    if (isEnrolled(key) || !batchKeys.add(key)) {
+                        rejections.add(new BulkEnrollmentResult.Rejection(row, student, course, 
+                            BulkEnrollmentResult.Reason.DUPLICATE, 
+                            "Student " + student.getRegNo() + " is already enrolled in course " + course.getCode()));
+                    } else if (credits[slot] + courseCredits > MAX_CREDITS_PER_SEMESTER) {
+                        rejections.add(new BulkEnrollmentResult.Rejection(row, student, course, 
+                            BulkEnrollmentResult.Reason.CREDIT_LIMIT, 
+                            "Credit limit exceeded for student " + student.getRegNo() + 
+                            ". Current: " + credits[slot] + 
+                            ", Attempting: " + courseCredits + 
+                            ", Max allowed: " + MAX_CREDITS_PER_SEMESTER));
+                    } else {
+                        credits[slot] += courseCredits;
+                        toCommit.add(key);
+                    }
+                }
+                
+                for (EnrollmentKey key : toCommit) {
+                    addEnrollment(key, new Enrollment(key.student, key.course));
+                }
+            }
+            accepted += toCommit.size();
         }
+        // One durability wait for the whole batch
+        afterMutation();
         
-        student.unenrollFromCourse(course);
+        rejections.sort(Comparator.comparingInt(BulkEnrollmentResult.Rejection::getRow));
+        return new BulkEnrollmentResult(requests.size(), accepted, rejections);
+    }
+    
+    // A historical row in the column store occupies the pair as well
+    private boolean isEnrolled(EnrollmentKey key) {
+        return enrollments.containsKey(key) || (columnarStore != null && columnarStore.contains(key.student, key.course));
+    }
+    
+    // Caller must hold the student's lock stripe and have validated the key
+    private void addEnrollment(EnrollmentKey key, Enrollment enrollment) {
+        Student student = key.student;
+        Course course = key.course;
+        // First, so a row loaded concurrently by loadHistoricalEnrollment fails here with
+        // nothing else changed yet
+        if (columnarStore != null) {
+            columnarStore.append(student, course, enrollment.getGrade(), enrollment.getEnrollmentDate());
+        }
+        enrollments.put(key, enrollment);
+        byCourse.computeIfAbsent(course, c -> ConcurrentHashMap.newKeySet()).add(enrollment);
+        totals.computeIfAbsent(student, s -> new StudentTotals())
+              .add(slot(course.getSemester()), creditsOf(course), enrollment.getGrade());
+        student.addEnrollment(enrollment);
+        listeners.forEach(l -> l.enrolled(enrollment));
+    }
+    
+    public void unenrollStudent(Student student, Course course) throws EnrollmentNotFoundException {
+        beforeMutation();
+        synchronized (lockFor(student)) {
+            Enrollment removed = enrollments.remove(new EnrollmentKey(student, course));
+            
+            if (removed == null) {
+                throw new EnrollmentNotFoundException(
+                    "Enrollment not found for student " + student.getRegNo() + " in course " + course.getCode());
+            }
+            
+            byCourse.computeIfPresent(course, (c, roster) -> {
+                roster.remove(removed);
+                return roster.isEmpty() ? null : roster;
+            });
+            StudentTotals studentTotals = totals.get(student);
+            if (studentTotals != null) {
+                studentTotals.remove(slot(course.getSemester()), creditsOf(course), removed.getGrade());
+            }
+            student.removeEnrollment(removed);
+            if (columnarStore != null) {
+                columnarStore.remove(student, course);
+            }
+            listeners.forEach(l -> l.unenrolled(removed));
+        }
+        afterMutation();
     }
     
     public void assignGrade(Student student, Course course, Grade grade) throws EnrollmentNotFoundException {
@@ -62,7 +250,26 @@ public class EnrollmentService {
             throw new EnrollmentNotFoundException(
                 "Enrollment not found for student " + student.getRegNo() + " in course " + course.getCode());
         }
-        enrollment.assignGrade(grade);
+        beforeMutation();
+        synchronized (lockFor(student)) {
+            // Re-check under the lock: a concurrent unenroll must not be counted again
+            if (enrollments.get(new EnrollmentKey(student, course)) != enrollment) {
+                throw new EnrollmentNotFoundException(
+                    "Enrollment not found for student " + student.getRegNo() + " in course " + course.getCode());
+            }
+            Grade previous = enrollment.getGrade();
+            enrollment.assignGrade(grade);
+            StudentTotals studentTotals = totals.get(student);
+            int slot = slot(course.getSemester());
+            int courseCredits = creditsOf(course);
+            studentTotals.remove(slot, courseCredits, previous);
+            studentTotals.add(slot, courseCredits, grade);
+            if (columnarStore != null) {
+                columnarStore.setGrade(student, course, grade);
+            }
+            listeners.forEach(l -> l.gradeAssigned(enrollment));
+        }
+        afterMutation();
     }
     
     public void assignGradeByPercentage(Student student, Course course, double percentage) 
@@ -71,37 +278,295 @@ public class EnrollmentService {
         assignGrade(student, course, grade);
     }
     
+    /**
+     * Credit-weighted GPA over the student's graded enrollments, from the running totals
+     */
+    public double getGPA(Student student) {
+        synchronized (lockFor(student)) {
+            StudentTotals studentTotals = totals.get(student);
+            return studentTotals != null ? studentTotals.gpa() : 0.0;
+        }
+    }
+    
+    /**
+     * GPA over the student's graded enrollments in one semester; null means unscheduled courses
+     */
+    public double getSemesterGPA(Student student, Semester semester) {
+        synchronized (lockFor(student)) {
+            StudentTotals studentTotals = totals.get(student);
+            return studentTotals != null ? studentTotals.gpa(slot(semester)) : 0.0;
+        }
+    }
+    
+    public int getGradedCredits(Student student) {
+        synchronized (lockFor(student)) {
+            StudentTotals studentTotals = totals.get(student);
+            return studentTotals != null ? studentTotals.gradedCredits : 0;
+        }
+    }
+    
+    /**
+     * Graded credits in one semester, the weight behind getSemesterGPA
+     */
+    public int getSemesterGradedCredits(Student student, Semester semester) {
+        synchronized (lockFor(student)) {
+            StudentTotals studentTotals = totals.get(student);
+            return studentTotals != null ? studentTotals.semesterGradedCredits[slot(semester)] : 0;
+        }
+    }
+    
+    /**
+     * Run the action under the student's lock stripe, ordered with the student's enrollment
+     * events; e.g. for a listener that reads the student's totals after registering late
+     */
+    public void runLocked(Student student, Runnable action) {
+        synchronized (lockFor(student)) {
+            action.run();
+        }
+    }
+    
+    /**
+     * Follow credit changes made through the course service, re-counting the totals of
+     * every student enrolled in a course whose credits changed
+     */
+    public void trackCreditChanges(CourseService courseService) {
+        courseService.addMutationListener(new MutationListener() {
+            @Override
+            public void courseUpdated(Course course) {
+                recountCredits(course);
+            }
+        });
+    }
+    
+    /**
+     * Bring the totals in line with the course's current credits. Holds every stripe, since
+     * the course's students are spread across all of them; credit changes are rare.
+     */
+    public void recountCredits(Course course) {
+        lockAllStripes(0, () -> {
+            Integer counted = countedCredits.get(course);
+            int credits = course.getCredits();
+            if (counted == null || counted == credits) {
+                return;
+            }
+            int slot = slot(course.getSemester());
+            List<Student> recounted = new ArrayList<>();
+            for (Enrollment enrollment : byCourse.getOrDefault(course, Set.of())) {
+                if (enrollment.getCourse() != course) {
+                    // Still counted with the credits of the deactivated course behind the code
+                    continue;
+                }
+                StudentTotals studentTotals = totals.get(enrollment.getStudent());
+                studentTotals.remove(slot, counted, enrollment.getGrade());
+                studentTotals.add(slot, credits, enrollment.getGrade());
+                recounted.add(enrollment.getStudent());
+            }
+            if (columnarStore != null) {
+                // Stored rows without an Enrollment record are the historical ones
+                columnarStore.forEachRow(course, (student, grade) -> {
+                    if (!enrollments.containsKey(new EnrollmentKey(student, course))) {
+                        StudentTotals studentTotals = totals.get(student);
+                        studentTotals.removeGrade(slot, counted, grade);
+                        studentTotals.addGrade(slot, credits, grade);
+                        recounted.add(student);
+                    }
+                });
+            }
+            countedCredits.put(course, credits);
+            List<Student> students = Collections.unmodifiableList(recounted);
+            listeners.forEach(l -> l.creditsRecounted(course, students));
+        });
+    }
+    
+    // Stripes are only ever nested here, always in index order, so this cannot deadlock
+    private void lockAllStripes(int from, Runnable action) {
+        if (from == studentLocks.length) {
+            action.run();
+            return;
+        }
+        synchronized (studentLocks[from]) {
+            lockAllStripes(from + 1, action);
+        }
+    }
+    
+    // The first count of a course fixes its credits until the next recount
+    private int creditsOf(Course course) {
+        return countedCredits.computeIfAbsent(course, Course::getCredits);
+    }
+    
+    public void addMutationListener(MutationListener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+    
+    public void removeMutationListener(MutationListener listener) {
+        listeners.remove(listener);
+    }
+    
+    // Gives listeners (e.g. a failed journal) the chance to refuse a change before it is applied
+    private void beforeMutation() {
+        listeners.forEach(MutationListener::beforeMutation);
+    }
+    
+    // Called once the change is applied, with no lock of this service held
+    private void afterMutation() {
+        listeners.forEach(MutationListener::afterMutation);
+    }
+    
     public Enrollment findEnrollment(Student student, Course course) {
-        return enrollments.stream()
-                .filter(e -> e.getStudent().equals(student) && e.getCourse().equals(course))
-                .findFirst()
-                .orElse(null);
+        return enrollments.get(new EnrollmentKey(student, course));
     }
     
+    /**
+     * Unmodifiable snapshot of the student's enrollments, shared without copying
+     */
     public List<Enrollment> getEnrollmentsByStudent(Student student) {
-        return enrollments.stream()
-                .filter(e -> e.getStudent().equals(student))
-                .collect(Collectors.toList());
+        return student.getEnrollments();
     }
     
+    /**
+     * Enrollment records of the course; historical rows have none, see getRoster
+     */
     public List<Enrollment> getEnrollmentsByCourse(Course course) {
-        return enrollments.stream()
-                .filter(e -> e.getCourse().equals(course))
-                .collect(Collectors.toList());
+        return List.copyOf(byCourse.getOrDefault(course, Set.of()));
     }
     
-    private boolean isStudentEnrolled(Student student, Course course) {
-        return findEnrollment(student, course) != null;
+    /**
+     * Every student stored for the course, historical rows included, read from the column
+     * store when there is one; otherwise the students of getEnrollmentsByCourse
+     */
+    public List<Student> getRoster(Course course) {
+        if (columnarStore != null) {
+            return columnarStore.getRoster(course);
+        }
+        List<Student> roster = new ArrayList<>();
+        byCourse.getOrDefault(course, Set.of()).forEach(enrollment -> roster.add(enrollment.getStudent()));
+        return roster;
     }
     
+    // Caller must hold the student's lock stripe
     private int getCurrentSemesterCredits(Student student, Semester semester) {
-        return enrollments.stream()
-                .filter(e -> e.getStudent().equals(student) && e.getCourse().getSemester() == semester)
-                .mapToInt(e -> e.getCourse().getCredits())
-                .sum();
+        StudentTotals studentTotals = totals.get(student);
+        return studentTotals != null ? studentTotals.credits[slot(semester)] : 0;
+    }
+    
+    /**
+     * Load a closed-term enrollment straight into the column store, without creating an
+     * Enrollment object. Its grade counts in getGPA, getSemesterGPA and getGradedCredits
+     * (and so in the rankings) and the student shows up in getRoster, but it is not counted
+     * against current-semester credits and cannot be graded or dropped afterwards.
+     */
+    public void loadHistoricalEnrollment(Student student, Course course, Grade grade, LocalDateTime enrollmentDate) {
+        if (columnarStore == null) {
+            throw new IllegalStateException("Historical enrollments require a columnar store");
+        }
+        synchronized (lockFor(student)) {
+            // First, so a pair already stored fails here with nothing else changed yet
+            columnarStore.append(student, course, grade, enrollmentDate);
+            totals.computeIfAbsent(student, s -> new StudentTotals())
+                  .addGrade(slot(course.getSemester()), creditsOf(course), grade);
+            listeners.forEach(l -> l.historicalEnrollmentLoaded(student, course));
+        }
+    }
+    
+    public ColumnarEnrollmentStore getColumnarStore() {
+        return columnarStore;
+    }
+    
+    /**
+     * Lazy stream over every enrollment record, for exports and reports.
+     * Weakly consistent under concurrent writes; nothing is copied.
+     */
+    public Stream<Enrollment> streamEnrollments() {
+        return enrollments.values().stream();
     }
     
     public int getEnrollmentCount() {
         return enrollments.size();
     }
+    
+    private static int slot(Semester semester) {
+        return semester != null ? semester.ordinal() : SEMESTER_SLOTS - 1;
+    }
+    
+    private Object lockFor(Student student) {
+        int h = student.getId().hashCode();
+        return studentLocks[(h ^ (h >>> 16)) & (studentLocks.length - 1)];
+    }
+    
+    /**
+     * One student's running totals; guarded by the student's lock stripe.
+     * Grade points are whole numbers, so the double sums stay exact as grades come and go.
+     */
+    private static final class StudentTotals {
+        private final int[] credits = new int[SEMESTER_SLOTS];
+        private final double[] semesterPoints = new double[SEMESTER_SLOTS];
+        private final int[] semesterGradedCredits = new int[SEMESTER_SLOTS];
+        private double points;
+        private int gradedCredits;
+        
+        void add(int slot, int courseCredits, Grade grade) {
+            credits[slot] += courseCredits;
+            addGrade(slot, courseCredits, grade);
+        }
+        
+        void remove(int slot, int courseCredits, Grade grade) {
+            credits[slot] -= courseCredits;
+            removeGrade(slot, courseCredits, grade);
+        }
+        
+        // The GPA side only, e.g. for historical rows that carry no credit load
+        void addGrade(int slot, int courseCredits, Grade grade) {
+            if (grade != Grade.NOT_GRADED) {
+                double weighted = grade.getPoints() * courseCredits;
+                semesterPoints[slot] += weighted;
+                semesterGradedCredits[slot] += courseCredits;
+                points += weighted;
+                gradedCredits += courseCredits;
+            }
+        }
+        
+        void removeGrade(int slot, int courseCredits, Grade grade) {
+            if (grade != Grade.NOT_GRADED) {
+                double weighted = grade.getPoints() * courseCredits;
+                semesterPoints[slot] -= weighted;
+                semesterGradedCredits[slot] -= courseCredits;
+                points -= weighted;
+                gradedCredits -= courseCredits;
+            }
+        }
+        
+        double gpa() {
+            return gradedCredits > 0 ? points / gradedCredits : 0.0;
+        }
+        
+        double gpa(int slot) {
+            return semesterGradedCredits[slot] > 0 ? semesterPoints[slot] / semesterGradedCredits[slot] : 0.0;
+        }
+    }
+    
+    /**
+     * Composite (student, course) key for the enrollment index
+     */
+    private static final class EnrollmentKey {
+        private final Student student;
+        private final Course course;
+        
+        EnrollmentKey(Student student, Course course) {
+            this.student = student;
+            this.course = course;
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+            EnrollmentKey that = (EnrollmentKey) obj;
+            return student.equals(that.student) && course.equals(that.course);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(student, course);
+        }
+    }
 }
\ No newline at end of file
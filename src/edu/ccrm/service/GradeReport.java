@@ -0,0 +1,216 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Semester;
+
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Grade distributions and GPA figures per course, department and semester, as produced
+ * by ReportingService. Every figure is built from mergeable parts: grade counts add up,
+ * and the student GPA statistics merge with Chan's formula, so partial results from
+ * parallel workers combine into the same answer as a serial pass.
+ */
+public class GradeReport {
+    private static final Grade[] GRADES = Grade.values();
+    
+    private final Distribution overall;
+    private final Map<Course, Distribution> byCourse;
+    private final Map<String, Distribution> byDepartment;
+    private final Map<Semester, Distribution> bySemester;
+    private final RunningStats studentGPAs;
+    private final long elapsedMillis;
+    
+    GradeReport(Distribution overall, Map<Course, Distribution> byCourse, Map<String, Distribution> byDepartment,
+                Map<Semester, Distribution> bySemester, RunningStats studentGPAs, long elapsedMillis) {
+        this.overall = overall;
+        this.byCourse = Collections.unmodifiableMap(byCourse);
+        this.byDepartment = Collections.unmodifiableMap(byDepartment);
+        this.bySemester = Collections.unmodifiableMap(bySemester);
+        this.studentGPAs = studentGPAs;
+        this.elapsedMillis = elapsedMillis;
+    }
+    
+    public Distribution getOverall() { return overall; }
+    public Map<Course, Distribution> getByCourse() { return byCourse; }
+    public Map<String, Distribution> getByDepartment() { return byDepartment; }
+    public Map<Semester, Distribution> getBySemester() { return bySemester; }
+    public RunningStats getStudentGPAs() { return studentGPAs; }
+    public long getElapsedMillis() { return elapsedMillis; }
+    
+    public void print(PrintStream out) {
+        out.println("Grade Report (" + overall.getEnrollmentCount() + " enrollments, " +
+                    byCourse.size() + " courses, " + elapsedMillis + " ms)");
+        out.println("  Overall: " + overall);
+        out.printf("  Student GPA: n=%d, mean %.2f, std dev %.2f, range %.2f-%.2f%n",
+                   studentGPAs.getCount(), studentGPAs.getMean(), studentGPAs.getStandardDeviation(),
+                   studentGPAs.getMin(), studentGPAs.getMax());
+        out.println("\nBy semester:");
+        bySemester.forEach((semester, d) -> out.println("  " + semester + ": " + d));
+        out.println("\nBy department:");
+        byDepartment.forEach((department, d) -> out.println("  " + department + ": " + d));
+        out.println("\nBy course:");
+        byCourse.forEach((course, d) -> out.println("  " + course.getCode() + ": " + d));
+    }
+    
+    /**
+     * Grade counts for one group, indexed by Grade.ordinal(), plus the credit-weighted
+     * grade points needed for its GPA. Mean and variance of the grade points follow
+     * exactly from the counts, so they need no separate accumulator.
+     */
+    public static class Distribution {
+        private final long[] counts = new long[GRADES.length];
+        private double weightedPoints;
+        private long gradedCredits;
+        
+        /**
+         * Add counts[ordinal] enrollments of each grade in a course worth the given credits
+         */
+        void add(long[] gradeCounts, int credits) {
+            for (int g = 0; g < counts.length; g++) {
+                long n = gradeCounts[g];
+                if (n == 0) {
+                    continue;
+                }
+                counts[g] += n;
+                if (g != Grade.NOT_GRADED.ordinal()) {
+                    weightedPoints += GRADES[g].getPoints() * credits * n;
+                    gradedCredits += (long) credits * n;
+                }
+            }
+        }
+        
+        void merge(Distribution other) {
+            for (int g = 0; g < counts.length; g++) {
+                counts[g] += other.counts[g];
+            }
+            weightedPoints += other.weightedPoints;
+            gradedCredits += other.gradedCredits;
+        }
+        
+        public long getCount(Grade grade) { return counts[grade.ordinal()]; }
+        
+        public Map<Grade, Long> getCounts() {
+            Map<Grade, Long> map = new EnumMap<>(Grade.class);
+            for (Grade grade : GRADES) {
+                map.put(grade, counts[grade.ordinal()]);
+            }
+            return map;
+        }
+        
+        public long getEnrollmentCount() {
+            long total = 0;
+            for (long n : counts) {
+                total += n;
+            }
+            return total;
+        }
+        
+        public long getGradedCount() {
+            return getEnrollmentCount() - counts[Grade.NOT_GRADED.ordinal()];
+        }
+        
+        /** Credit-weighted GPA of the graded enrollments */
+        public double getGPA() {
+            return gradedCredits > 0 ? weightedPoints / gradedCredits : 0.0;
+        }
+        
+        /** Unweighted mean grade points of the graded enrollments */
+        public double getMeanPoints() {
+            long graded = getGradedCount();
+            if (graded == 0) {
+                return 0.0;
+            }
+            double sum = 0.0;
+            for (Grade grade : GRADES) {
+                if (grade != Grade.NOT_GRADED) {
+                    sum += grade.getPoints() * counts[grade.ordinal()];
+                }
+            }
+            return sum / graded;
+        }
+        
+        /** Population variance of the graded enrollments' grade points */
+        public double getPointsVariance() {
+            long graded = getGradedCount();
+            if (graded == 0) {
+                return 0.0;
+            }
+            double mean = getMeanPoints();
+            double sum = 0.0;
+            for (Grade grade : GRADES) {
+                if (grade != Grade.NOT_GRADED) {
+                    double d = grade.getPoints() - mean;
+                    sum += d * d * counts[grade.ordinal()];
+                }
+            }
+            return sum / graded;
+        }
+        
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder();
+            out.append(getEnrollmentCount()).append(" enrolled, GPA ")
+               .append(String.format("%.2f", getGPA()))
+               .append(String.format(" (mean %.2f, var %.2f) [", getMeanPoints(), getPointsVariance()));
+            for (Grade grade : GRADES) {
+                if (grade.ordinal() > 0) {
+                    out.append(' ');
+                }
+                out.append(grade.name()).append('=').append(counts[grade.ordinal()]);
+            }
+            return out.append(']').toString();
+        }
+    }
+    
+    /**
+     * Welford mean and variance of a stream of values, mergeable across threads
+     */
+    public static class RunningStats {
+        private long count;
+        private double mean;
+        private double m2;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        
+        void add(double value) {
+            count++;
+            double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        
+        void merge(RunningStats other) {
+            if (other.count == 0) {
+                return;
+            }
+            long total = count + other.count;
+            double delta = other.mean - mean;
+            mean += delta * other.count / total;
+            m2 += other.m2 + delta * delta * count * other.count / total;
+            count = total;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+        
+        public long getCount() { return count; }
+        public double getMean() { return mean; }
+        public double getMin() { return count > 0 ? min : 0.0; }
+        public double getMax() { return count > 0 ? max : 0.0; }
+        
+        /** Sample variance; 0 for fewer than two values */
+        public double getVariance() {
+            return count > 1 ? m2 / (count - 1) : 0.0;
+        }
+        
+        public double getStandardDeviation() {
+            return Math.sqrt(getVariance());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,53 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Enrollment;
+import edu.ccrm.domain.Student;
+
+import java.util.Collection;
+
+/**
+ * Callback for every state change made through the services, e.g. to journal it.
+ * Each event happens after the change is applied and, where the service locks, while
+ * the lock is still held, so one student's or course's events arrive in apply order.
+ * Implementations should be quick and should not throw from events: the change is
+ * already applied. A listener that may have to refuse changes does so in
+ * beforeMutation, and any slow follow-up (e.g. an fsync) belongs in afterMutation.
+ */
+public interface MutationListener {
+    /**
+     * Called before a service method applies a change; throwing rejects the change with
+     * nothing applied, e.g. once a journal can no longer write
+     */
+    default void beforeMutation() {}
+    
+    /**
+     * Called by the mutating thread after its change is applied and every service lock it
+     * took is released; an exception thrown here reaches the caller of the service method
+     */
+    default void afterMutation() {}
+    
+    default void studentAdded(Student student) {}
+    default void studentUpdated(Student student) {}
+    default void studentDeactivated(Student student) {}
+    
+    default void courseAdded(Course course) {}
+    default void courseUpdated(Course course) {}
+    default void courseReassigned(Course course) {}
+    default void courseDeactivated(Course course) {}
+    
+    default void enrolled(Enrollment enrollment) {}
+    default void unenrolled(Enrollment enrollment) {}
+    default void gradeAssigned(Enrollment enrollment) {}
+    
+    /**
+     * A closed-term row was loaded into the column store and counted in the student's GPA
+     */
+    default void historicalEnrollmentLoaded(Student student, Course course) {}
+    
+    /**
+     * The enrollment service re-counted a course's rows after its credits changed, so these
+     * students' GPAs may differ; called while every student lock is held
+     */
+    default void creditsRecounted(Course course, Collection<Student> students) {}
+}
\ No newline at end of file
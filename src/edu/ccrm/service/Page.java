@@ -0,0 +1,101 @@
+package edu.ccrm.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * One page of a listing plus what is needed to fetch the next one
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final boolean hasMore;
+    private final PageRequest<T> request;
+    
+    private Page(List<T> items, boolean hasMore, PageRequest<T> request) {
+        this.items = Collections.unmodifiableList(items);
+        this.hasMore = hasMore;
+        this.request = request;
+    }
+    
+    /**
+     * Cut a page out of a lazy stream without materializing the rest of it.
+     * Unsorted requests just skip and limit the stream, which is only stable while the
+     * stream is; the services page in a total order instead. Sorted requests keep a bounded
+     * heap of offset + limit + 1 rows, so memory depends on the page position and never
+     * on the collection size.
+     */
+    public static <T> Page<T> of(Stream<T> rows, PageRequest<T> request) {
+        int limit = request.getLimit();
+        Comparator<? super T> sort = request.getSort();
+        
+        if (sort == null) {
+            return ofOrdered(rows, request);
+        }
+        
+        if (request.getAfter() != null) {
+            T after = request.getAfter();
+            rows = rows.filter(row -> sort.compare(row, after) > 0);
+        }
+        
+        // Max-heap on the sort order: the head is the worst row still inside the window
+        int keep = request.getOffset() + limit + 1;
+        PriorityQueue<T> heap = new PriorityQueue<>(Math.min(keep, 1024), sort.reversed());
+        Iterator<T> it = rows.iterator();
+        while (it.hasNext()) {
+            T row = it.next();
+            if (heap.size() < keep) {
+                heap.add(row);
+            } else if (sort.compare(row, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(row);
+            }
+        }
+        
+        List<T> window = new ArrayList<>(heap);
+        window.sort(sort);
+        int from = Math.min(request.getOffset(), window.size());
+        return fromWindow(window.subList(from, window.size()), request);
+    }
+    
+    /**
+     * Cut a page out of rows that already arrive in the request's order, e.g. an ordered
+     * index read from the cursor on; reads at most offset + limit + 1 rows
+     */
+    public static <T> Page<T> ofOrdered(Stream<T> rowsInOrder, PageRequest<T> request) {
+        List<T> window = rowsInOrder.skip(request.getOffset())
+                .limit(request.getLimit() + 1L)
+                .collect(Collectors.toList());
+        return fromWindow(window, request);
+    }
+    
+    private static <T> Page<T> fromWindow(List<T> window, PageRequest<T> request) {
+        boolean hasMore = window.size() > request.getLimit();
+        List<T> items = new ArrayList<>(hasMore ? window.subList(0, request.getLimit()) : window);
+        return new Page<>(items, hasMore, request);
+    }
+    
+    public List<T> getItems() { return items; }
+    public boolean hasMore() { return hasMore; }
+    public int size() { return items.size(); }
+    
+    /**
+     * Request for the following page, or null when this is the last one
+     */
+    public PageRequest<T> nextRequest() {
+        if (!hasMore) {
+            return null;
+        }
+        return request.next(items.get(items.size() - 1));
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Page{size=%d, hasMore=%s}", items.size(), hasMore);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,95 @@
+package edu.ccrm.service;
+
+import java.util.Comparator;
+
+/**
+ * Describes one page of a listing: how many rows, where to start and in which order.
+ * A page can start at a numeric offset or, for deep paging, after a keyset cursor
+ * (the last row of the previous page). Keyset paging needs a sort order that is
+ * total, i.e. never reports two different rows as equal.
+ */
+public class PageRequest<T> {
+    private final int limit;
+    private final int offset;
+    private final Comparator<? super T> sort;
+    private final T after;
+    
+    public static class Builder<T> {
+        private int limit = 20;
+        private int offset;
+        private Comparator<? super T> sort;
+        private T after;
+        
+        public Builder<T> limit(int limit) {
+            this.limit = limit;
+            return this;
+        }
+        
+        public Builder<T> offset(int offset) {
+            this.offset = offset;
+            return this;
+        }
+        
+        public Builder<T> sort(Comparator<? super T> sort) {
+            this.sort = sort;
+            return this;
+        }
+        
+        public Builder<T> after(T after) {
+            this.after = after;
+            return this;
+        }
+        
+        public PageRequest<T> build() {
+            return new PageRequest<>(this);
+        }
+    }
+    
+    private PageRequest(Builder<T> builder) {
+        if (builder.limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive: " + builder.limit);
+        }
+        if (builder.offset < 0) {
+            throw new IllegalArgumentException("Page offset cannot be negative: " + builder.offset);
+        }
+        if (builder.after != null && builder.sort == null) {
+            throw new IllegalArgumentException("Keyset paging requires a sort order");
+        }
+        this.limit = builder.limit;
+        this.offset = builder.offset;
+        this.sort = builder.sort;
+        this.after = builder.after;
+    }
+    
+    public static <T> PageRequest<T> of(int limit, Comparator<? super T> sort) {
+        return new Builder<T>().limit(limit).sort(sort).build();
+    }
+    
+    // Getters
+    public int getLimit() { return limit; }
+    public int getOffset() { return offset; }
+    public Comparator<? super T> getSort() { return sort; }
+    public T getAfter() { return after; }
+    
+    /**
+     * This request, or the same window in the given order when it has no sort of its own
+     */
+    public PageRequest<T> withDefaultSort(Comparator<? super T> defaultSort) {
+        if (sort != null || defaultSort == null) {
+            return this;
+        }
+        return new Builder<T>().limit(limit).offset(offset).sort(defaultSort).build();
+    }
+    
+    /**
+     * Request for the page that follows the given last row, keeping size and order.
+     * Unsorted requests can only advance the offset, which skips or repeats rows when
+     * the listing changes in between; sorted ones continue after the row's key.
+     */
+    public PageRequest<T> next(T lastRow) {
+        if (sort == null) {
+            return new Builder<T>().limit(limit).offset(offset + limit).build();
+        }
+        return new Builder<T>().limit(limit).sort(sort).after(lastRow).build();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,372 @@
+package edu.ccrm.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Composable query over a Searchable service.
+ * Unlike an opaque Predicate, a query exposes its structure (equality, prefix, range,
+ * and/or) so a service can answer it from its indexes. Every query is still a
+ * Predicate, so it can be passed anywhere a Predicate is expected.
+ * Like every other search, a query only matches active records unless it constrains
+ * the service's active field itself, e.g. eq(ACTIVE, false) for deactivated ones.
+ */
+public abstract class Query<T> implements Predicate<T> {
+    
+    /**
+     * Named attribute of an entity that queries can constrain
+     */
+    public static final class Field<T, V> {
+        private final String name;
+        private final Function<T, V> getter;
+        
+        public Field(String name, Function<T, V> getter) {
+            this.name = Objects.requireNonNull(name, "Field name cannot be null");
+            this.getter = Objects.requireNonNull(getter, "Field getter cannot be null");
+        }
+        
+        public String getName() { return name; }
+        public V get(T entity) { return getter.apply(entity); }
+        
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+    
+    /**
+     * Index hook supplied by a service: returns every record whose field equals the value
+     * (active ones only when activeOnly is set), or null when the field is not indexed.
+     */
+    @FunctionalInterface
+    public interface IndexLookup<T> {
+        Collection<T> lookup(Field<T, ?> field, Object value, boolean activeOnly);
+    }
+    
+    /**
+     * Ordered-index hook supplied by a service: returns a superset of the records whose
+     * field lies from {@code from} (inclusive) to {@code to} (inclusive when toInclusive),
+     * a null bound leaving that side open, or null when the field has no ordered index.
+     */
+    @FunctionalInterface
+    public interface RangeLookup<T> {
+        Collection<T> lookupRange(Field<T, ?> field, Object from, Object to, boolean toInclusive, boolean activeOnly);
+    }
+    
+    // Factory methods
+    public static <T, V> Query<T> eq(Field<T, V> field, V value) {
+        return new Eq<>(field, value);
+    }
+    
+    public static <T> Query<T> prefix(Field<T, String> field, String prefix) {
+        return new Prefix<>(field, prefix);
+    }
+    
+    /**
+     * Inclusive range; a null bound leaves that side open
+     */
+    public static <T, V extends Comparable<? super V>> Query<T> range(Field<T, V> field, V from, V to) {
+        return new Range<>(field, from, to);
+    }
+    
+    // Both copy element by element: handing the varargs array itself on is what -Xlint flags
+    @SafeVarargs
+    public static <T> Query<T> and(Query<T>... parts) {
+        List<Query<T>> list = new ArrayList<>(parts.length);
+        for (Query<T> part : parts) {
+            list.add(part);
+        }
+        return new And<>(list);
+    }
+    
+    @SafeVarargs
+    public static <T> Query<T> or(Query<T>... parts) {
+        List<Query<T>> list = new ArrayList<>(parts.length);
+        for (Query<T> part : parts) {
+            list.add(part);
+        }
+        return new Or<>(list);
+    }
+    
+    public Query<T> andThen(Query<T> other) {
+        return and(this, other);
+    }
+    
+    public Query<T> orElse(Query<T> other) {
+        return or(this, other);
+    }
+    
+    /**
+     * Plan the query against the service's indexes.
+     * Returns a candidate superset of the matches that still has to be filtered with the
+     * query itself, or null when no index applies and the caller must scan.
+     */
+    public static <T> Collection<T> candidates(Query<T> query, Field<T, Boolean> activeField, 
+                                              IndexLookup<T> index) {
+        return candidates(query, activeField, index, (field, from, to, toInclusive, activeOnly) -> null);
+    }
+    
+    /**
+     * As above, also answering prefix and range conditions from the service's ordered indexes
+     */
+    public static <T> Collection<T> candidates(Query<T> query, Field<T, Boolean> activeField, 
+                                              IndexLookup<T> index, RangeLookup<T> ranges) {
+        return query.plan(new Indexes<>(activeField, index, ranges), query.activeOnly(activeField));
+    }
+    
+    /**
+     * True when this query only matches records whose active field is true
+     */
+    public boolean requiresActive(Field<T, Boolean> activeField) {
+        return false;
+    }
+    
+    /**
+     * True when only active records can be in the result: the query requires them, or
+     * does not mention the active field at all
+     */
+    public boolean activeOnly(Field<T, Boolean> activeField) {
+        return requiresActive(activeField) || !constrains(activeField);
+    }
+    
+    /**
+     * True when some condition of this query is on the given field
+     */
+    public abstract boolean constrains(Field<T, ?> field);
+    
+    abstract Collection<T> plan(Indexes<T> indexes, boolean activeOnly);
+    
+    /**
+     * Sub-map of an ordered index between two bounds given as in RangeLookup
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> NavigableMap<K, V> between(NavigableMap<K, V> index, Object from, Object to, 
+                                                    boolean toInclusive) {
+        NavigableMap<K, V> view = index;
+        if (from != null) {
+            view = view.tailMap((K) from, true);
+        }
+        if (to != null) {
+            view = view.headMap((K) to, toInclusive);
+        }
+        return view;
+    }
+    
+    // The lookups of one service, threaded through planning
+    static final class Indexes<T> {
+        final Field<T, Boolean> activeField;
+        final IndexLookup<T> index;
+        final RangeLookup<T> ranges;
+        
+        Indexes(Field<T, Boolean> activeField, IndexLookup<T> index, RangeLookup<T> ranges) {
+            this.activeField = activeField;
+            this.index = index;
+            this.ranges = ranges;
+        }
+    }
+    
+    static final class Eq<T, V> extends Query<T> {
+        private final Field<T, V> field;
+        private final V value;
+        
+        Eq(Field<T, V> field, V value) {
+            this.field = Objects.requireNonNull(field);
+            this.value = value;
+        }
+        
+        @Override
+        public boolean test(T entity) {
+            return Objects.equals(field.get(entity), value);
+        }
+        
+        @Override
+        public boolean requiresActive(Field<T, Boolean> activeField) {
+            return field == activeField && Boolean.TRUE.equals(value);
+        }
+        
+        @Override
+        public boolean constrains(Field<T, ?> other) {
+            return field == other;
+        }
+        
+        @Override
+        Collection<T> plan(Indexes<T> indexes, boolean activeOnly) {
+            return indexes.index.lookup(field, value, activeOnly);
+        }
+        
+        @Override
+        public String toString() {
+            return field + " = " + value;
+        }
+    }
+    
+    static final class Prefix<T> extends Query<T> {
+        private final Field<T, String> field;
+        private final String prefix;
+        
+        Prefix(Field<T, String> field, String prefix) {
+            this.field = Objects.requireNonNull(field);
+            this.prefix = Objects.requireNonNull(prefix, "Prefix cannot be null");
+        }
+        
+        @Override
+        public boolean test(T entity) {
+            String value = field.get(entity);
+            return value != null && value.startsWith(prefix);
+        }
+        
+        @Override
+        public boolean constrains(Field<T, ?> other) {
+            return field == other;
+        }
+        
+        // Every string with the prefix sorts from the prefix up to (not including) the
+        // prefix with its last char incremented
+        @Override
+        Collection<T> plan(Indexes<T> indexes, boolean activeOnly) {
+            int end = prefix.length();
+            while (end > 0 && prefix.charAt(end - 1) == Character.MAX_VALUE) {
+                end--;
+            }
+            String upper = end > 0 ? prefix.substring(0, end - 1) + (char) (prefix.charAt(end - 1) + 1) : null;
+            return indexes.ranges.lookupRange(field, prefix, upper, false, activeOnly);
+        }
+        
+        @Override
+        public String toString() {
+            return field + " LIKE '" + prefix + "%'";
+        }
+    }
+    
+    static final class Range<T, V extends Comparable<? super V>> extends Query<T> {
+        private final Field<T, V> field;
+        private final V from;
+        private final V to;
+        
+        Range(Field<T, V> field, V from, V to) {
+            this.field = Objects.requireNonNull(field);
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        public boolean test(T entity) {
+            V value = field.get(entity);
+            if (value == null) return false;
+            if (from != null && value.compareTo(from) < 0) return false;
+            return to == null || value.compareTo(to) <= 0;
+        }
+        
+        @Override
+        public boolean constrains(Field<T, ?> other) {
+            return field == other;
+        }
+        
+        @Override
+        Collection<T> plan(Indexes<T> indexes, boolean activeOnly) {
+            return indexes.ranges.lookupRange(field, from, to, true, activeOnly);
+        }
+        
+        @Override
+        public String toString() {
+            return field + " BETWEEN " + from + " AND " + to;
+        }
+    }
+    
+    static final class And<T> extends Query<T> {
+        private final List<Query<T>> parts;
+        
+        And(List<Query<T>> parts) {
+            this.parts = List.copyOf(parts);
+        }
+        
+        @Override
+        public boolean test(T entity) {
+            for (Query<T> part : parts) {
+                if (!part.test(entity)) return false;
+            }
+            return true;
+        }
+        
+        @Override
+        public boolean requiresActive(Field<T, Boolean> activeField) {
+            return parts.stream().anyMatch(p -> p.requiresActive(activeField));
+        }
+        
+        @Override
+        public boolean constrains(Field<T, ?> field) {
+            return parts.stream().anyMatch(p -> p.constrains(field));
+        }
+        
+        // Any indexed conjunct bounds the result, so use the smallest one
+        @Override
+        Collection<T> plan(Indexes<T> indexes, boolean activeOnly) {
+            boolean onlyActive = activeOnly || requiresActive(indexes.activeField);
+            Collection<T> best = null;
+            for (Query<T> part : parts) {
+                Collection<T> candidates = part.plan(indexes, onlyActive);
+                if (candidates != null && (best == null || candidates.size() < best.size())) {
+                    best = candidates;
+                }
+            }
+            return best;
+        }
+        
+        @Override
+        public String toString() {
+            return parts.toString().replace(", ", " AND ");
+        }
+    }
+    
+    static final class Or<T> extends Query<T> {
+        private final List<Query<T>> parts;
+        
+        Or(List<Query<T>> parts) {
+            this.parts = List.copyOf(parts);
+        }
+        
+        @Override
+        public boolean test(T entity) {
+            for (Query<T> part : parts) {
+                if (part.test(entity)) return true;
+            }
+            return false;
+        }
+        
+        @Override
+        public boolean requiresActive(Field<T, Boolean> activeField) {
+            return !parts.isEmpty() && parts.stream().allMatch(p -> p.requiresActive(activeField));
+        }
+        
+        @Override
+        public boolean constrains(Field<T, ?> field) {
+            return parts.stream().anyMatch(p -> p.constrains(field));
+        }
+        
+        // A disjunction can only use indexes when every branch can
+        @Override
+        Collection<T> plan(Indexes<T> indexes, boolean activeOnly) {
+            Set<T> union = new LinkedHashSet<>();
+            for (Query<T> part : parts) {
+                Collection<T> candidates = part.plan(indexes, activeOnly);
+                if (candidates == null) {
+                    return null;
+                }
+                union.addAll(candidates);
+            }
+            return union;
+        }
+        
+        @Override
+        public String toString() {
+            return parts.toString().replace(", ", " OR ");
+        }
+    }
+}
\ No newline at end of file
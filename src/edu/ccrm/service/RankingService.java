@@ -0,0 +1,355 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Enrollment;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.domain.Student;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * GPA rankings kept up to date as grades change, so rank queries never sort all students.
+ *
+ * Every active student with graded credits sits in a skip list ordered by GPA (highest
+ * first), which answers top-K and minimum-GPA lists by walking from the front, and in a
+ * Fenwick tree over GPA buckets of 0.001, which answers rank and percentile in O(log B).
+ * Both are updated from the services' mutation events using the O(1) running GPAs.
+ * Department and semester rankings use GPAs that are not kept incrementally; they are
+ * computed in one pass and selected with a bounded heap of size K.
+ */
+public class RankingService implements MutationListener {
+    private static final int BUCKETS_PER_POINT = 1000;
+    private static final double MAX_POINTS = 10.0;
+    
+    /** Highest GPA first, ties broken by student id */
+    public static final Comparator<RankedStudent> BY_RANK = Comparator
+            .comparingDouble(RankedStudent::getGPA).reversed()
+            .thenComparing(r -> r.getStudent().getId());
+            
+    private final StudentService studentService;
+    private final EnrollmentService enrollmentService;
+    
+    private final NavigableSet<RankedStudent> ranking = new ConcurrentSkipListSet<>(BY_RANK);
+    private final Map<Student, RankedStudent> current = new ConcurrentHashMap<>();
+    private final FenwickTree buckets = new FenwickTree(bucket(MAX_POINTS) + 1);
+    // Guards the three structures above together; never held while calling into the services
+    private final Object lock = new Object();
+    
+    public RankingService(StudentService studentService, EnrollmentService enrollmentService) {
+        this.studentService = studentService;
+        this.enrollmentService = enrollmentService;
+        studentService.addMutationListener(this);
+        enrollmentService.addMutationListener(this);
+        // Catch up with students graded before this service was created. Events can already
+        // arrive, so each refresh runs under the student's stripe like an event's would.
+        studentService.stream().forEach(student -> enrollmentService.runLocked(student, () -> refresh(student)));
+    }
+    
+    // ---- Queries ----
+    
+    /**
+     * The k highest GPAs overall
+     */
+    public List<RankedStudent> topK(int k) {
+        return topK(k, student -> true);
+    }
+    
+    /**
+     * The k highest GPAs among students matching the cohort, e.g. admittedIn(2024).
+     * Walks the ranking from the top and stops at the k-th match.
+     */
+    public List<RankedStudent> topK(int k, Predicate<Student> cohort) {
+        List<RankedStudent> top = new ArrayList<>(Math.min(k, 1024));
+        for (RankedStudent ranked : ranking) {
+            if (top.size() >= k) {
+                break;
+            }
+            if (cohort.test(ranked.getStudent())) {
+                top.add(ranked);
+            }
+        }
+        return top;
+    }
+    
+    /**
+     * Every ranked student with at least the given GPA, e.g. a dean's list, best first
+     */
+    public List<RankedStudent> atLeast(double minGPA) {
+        List<RankedStudent> list = new ArrayList<>();
+        for (RankedStudent ranked : ranking) {
+            if (ranked.getGPA() < minGPA) {
+                break;
+            }
+            list.add(ranked);
+        }
+        return list;
+    }
+    
+    /**
+     * The k highest GPAs counting only courses of the department, matched case-insensitively
+     * as in CourseService.findCoursesByDepartment
+     */
+    public List<RankedStudent> topKByDepartment(String department, int k) {
+        String key = department != null ? CourseService.normalizeDepartment(department) : null;
+        return boundedTopK(k, student -> departmentGPA(student, key));
+    }
+    
+    /**
+     * The k highest GPAs counting only courses of the semester; students with no graded
+     * credits in the semester are left out
+     */
+    public List<RankedStudent> topKBySemester(Semester semester, int k) {
+        return boundedTopK(k, student -> enrollmentService.getSemesterGradedCredits(student, semester) > 0
+                ? enrollmentService.getSemesterGPA(student, semester) : Double.NaN);
+    }
+    
+    /**
+     * 1-based position by overall GPA; students with the same GPA (to 0.001) share a rank.
+     * @return 0 if the student is not ranked
+     */
+    public int rank(Student student) {
+        RankedStudent ranked = current.get(student);
+        if (ranked == null) {
+            return 0;
+        }
+        synchronized (lock) {
+            int b = bucket(ranked.getGPA());
+            return (int) (buckets.total() - buckets.prefix(b)) + 1;
+        }
+    }
+    
+    /**
+     * Percentage of ranked students below this student, counting ties as half
+     * @return NaN if the student is not ranked
+     */
+    public double percentileRank(Student student) {
+        RankedStudent ranked = current.get(student);
+        if (ranked == null) {
+            return Double.NaN;
+        }
+        synchronized (lock) {
+            int b = bucket(ranked.getGPA());
+            long below = b > 0 ? buckets.prefix(b - 1) : 0;
+            long equal = buckets.prefix(b) - below;
+            return 100.0 * (below + 0.5 * equal) / buckets.total();
+        }
+    }
+    
+    /**
+     * GPA needed to be in the top given percentage of ranked students
+     */
+    public double percentileCutoff(double topPercent) {
+        synchronized (lock) {
+            long total = buckets.total();
+            if (total == 0) {
+                return 0.0;
+            }
+            long needed = Math.max(1, (long) Math.ceil(total * topPercent / 100.0));
+            // Highest bucket with at least `needed` students at or above it
+            int b = buckets.lowestPrefixAtLeast(total - needed + 1);
+            return (double) b / BUCKETS_PER_POINT;
+        }
+    }
+    
+    public int getRankedCount() {
+        return current.size();
+    }
+    
+    /** Students admitted (created) in the given year, for cohort rankings */
+    public static Predicate<Student> admittedIn(int year) {
+        return student -> student.getCreatedDate() != null && student.getCreatedDate().getYear() == year;
+    }
+    
+    // ---- Incremental updates ----
+    
+    @Override
+    public void enrolled(Enrollment enrollment) {
+        refresh(enrollment.getStudent());
+    }
+    
+    @Override
+    public void unenrolled(Enrollment enrollment) {
+        refresh(enrollment.getStudent());
+    }
+    
+    @Override
+    public void gradeAssigned(Enrollment enrollment) {
+        refresh(enrollment.getStudent());
+    }
+    
+    @Override
+    public void historicalEnrollmentLoaded(Student student, Course course) {
+        refresh(student);
+    }
+    
+    @Override
+    public void creditsRecounted(Course course, Collection<Student> students) {
+        students.forEach(this::refresh);
+    }
+    
+    @Override
+    public void studentDeactivated(Student student) {
+        synchronized (lock) {
+            remove(student);
+        }
+    }
+    
+    // Enrollment events (and the constructor's catch-up) run under the student's lock stripe,
+    // so one student's refreshes never overlap and the GPA read here is the latest
+    private void refresh(Student student) {
+        boolean graded = enrollmentService.getGradedCredits(student) > 0;
+        double gpa = graded ? enrollmentService.getGPA(student) : 0.0;
+        synchronized (lock) {
+            // Re-checked under the lock: deactivation clears the flag before its event
+            if (!graded || !student.isActive()) {
+                remove(student);
+                return;
+            }
+            RankedStudent previous = current.get(student);
+            if (previous != null && previous.getGPA() == gpa) {
+                return;
+            }
+            remove(student);
+            RankedStudent ranked = new RankedStudent(student, gpa);
+            current.put(student, ranked);
+            ranking.add(ranked);
+            buckets.add(bucket(gpa), 1);
+        }
+    }
+    
+    // Caller holds the lock
+    private void remove(Student student) {
+        RankedStudent previous = current.remove(student);
+        if (previous != null) {
+            ranking.remove(previous);
+            buckets.add(bucket(previous.getGPA()), -1);
+        }
+    }
+    
+    // ---- Helpers ----
+    
+    private List<RankedStudent> boundedTopK(int k, ToDoubleFunction<Student> gpaOf) {
+        if (k <= 0) {
+            return List.of();
+        }
+        // Min-heap on rank: the head is the weakest of the best k seen so far
+        PriorityQueue<RankedStudent> heap = new PriorityQueue<>(k + 1, BY_RANK.reversed());
+        for (Student student : current.keySet()) {
+            double gpa = gpaOf.applyAsDouble(student);
+            if (Double.isNaN(gpa)) {
+                continue;
+            }
+            RankedStudent candidate = new RankedStudent(student, gpa);
+            if (heap.size() < k) {
+                heap.add(candidate);
+            } else if (BY_RANK.compare(candidate, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(candidate);
+            }
+        }
+        List<RankedStudent> top = new ArrayList<>(heap);
+        top.sort(BY_RANK);
+        return top;
+    }
+    
+    // NaN when the student has no graded credits in the department; the key is normalized
+    private static double departmentGPA(Student student, String departmentKey) {
+        double points = 0.0;
+        int credits = 0;
+        for (Enrollment e : student.getEnrollments()) {
+            String department = e.getCourse().getDepartment();
+            if (e.getGrade() != Grade.NOT_GRADED
+                    && Objects.equals(department != null ? CourseService.normalizeDepartment(department) : null, departmentKey)) {
+                int courseCredits = e.getCourse().getCredits();
+                points += e.getGrade().getPoints() * courseCredits;
+                credits += courseCredits;
+            }
+        }
+        return credits > 0 ? points / credits : Double.NaN;
+    }
+    
+    private static int bucket(double gpa) {
+        int b = (int) Math.round(gpa * BUCKETS_PER_POINT);
+        return Math.max(0, Math.min(b, (int) (MAX_POINTS * BUCKETS_PER_POINT)));
+    }
+    
+    /**
+     * A student's place in a ranking
+     */
+    public static class RankedStudent {
+        private final Student student;
+        private final double gpa;
+        
+        RankedStudent(Student student, double gpa) {
+            this.student = student;
+            this.gpa = gpa;
+        }
+        
+        public Student getStudent() { return student; }
+        public double getGPA() { return gpa; }
+        
+        @Override
+        public String toString() {
+            return String.format("%s (%.2f)", student.getRegNo(), gpa);
+        }
+    }
+    
+    /**
+     * Counts per bucket with O(log n) point updates and prefix sums
+     */
+    private static final class FenwickTree {
+        private final long[] tree;
+        private long total;
+        
+        FenwickTree(int size) {
+            this.tree = new long[size + 1];
+        }
+        
+        void add(int index, long delta) {
+            total += delta;
+            for (int i = index + 1; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+        }
+        
+        /** Sum of buckets 0..index */
+        long prefix(int index) {
+            long sum = 0;
+            for (int i = index + 1; i > 0; i -= i & -i) {
+                sum += tree[i];
+            }
+            return sum;
+        }
+        
+        long total() {
+            return total;
+        }
+        
+        /** Smallest index whose prefix sum reaches target, by descending the implicit tree */
+        int lowestPrefixAtLeast(long target) {
+            int position = 0;
+            long remaining = target;
+            for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+                int next = position + step;
+                if (next < tree.length && tree[next] < remaining) {
+                    position = next;
+                    remaining -= tree[next];
+                }
+            }
+            // Tree index position + 1 is the first to reach the target, which is bucket `position`
+            return position;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,86 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Enrollment;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Semester;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collector;
+
+/**
+ * Computes the grade reports in one parallel pass over the enrollments.
+ * The pass only counts enrollments per (course, grade) into per-thread arrays, which
+ * merge by addition; every per-course, per-department and per-semester figure is then
+ * rolled up from those counts in time proportional to the number of courses.
+ * When the enrollment service has a column store, the pass runs over its rows instead,
+ * which also covers the historical enrollments loaded there.
+ */
+public class ReportingService {
+    private static final int GRADE_COUNT = Grade.values().length;
+    
+    private final StudentService studentService;
+    private final EnrollmentService enrollmentService;
+    
+    public ReportingService(StudentService studentService, EnrollmentService enrollmentService) {
+        this.studentService = studentService;
+        this.enrollmentService = enrollmentService;
+    }
+    
+    public GradeReport generateReport() {
+        long start = System.nanoTime();
+        ColumnarEnrollmentStore store = enrollmentService.getColumnarStore();
+        Map<Course, long[]> counts = store != null
+            ? store.countGradesByCourse()
+            : enrollmentService.streamEnrollments().parallel().collect(countByCourse());
+            
+        Map<Course, GradeReport.Distribution> byCourse = new TreeMap<>(CourseService.BY_CODE);
+        Map<String, GradeReport.Distribution> byDepartment = new TreeMap<>();
+        Map<Semester, GradeReport.Distribution> bySemester = new EnumMap<>(Semester.class);
+        counts.forEach((course, gradeCounts) -> {
+            int credits = course.getCredits();
+            byCourse.computeIfAbsent(course, c -> new GradeReport.Distribution()).add(gradeCounts, credits);
+            String department = course.getDepartment() != null ? course.getDepartment() : "(none)";
+            byDepartment.computeIfAbsent(department, d -> new GradeReport.Distribution()).add(gradeCounts, credits);
+            if (course.getSemester() != null) {
+                bySemester.computeIfAbsent(course.getSemester(), s -> new GradeReport.Distribution())
+                          .add(gradeCounts, credits);
+            }
+        });
+        GradeReport.Distribution overall = new GradeReport.Distribution();
+        byDepartment.values().forEach(overall::merge);
+        
+        // GPAs come from the running totals, so this is O(1) per student
+        GradeReport.RunningStats studentGPAs = studentService.stream().parallel()
+            .filter(student -> enrollmentService.getGradedCredits(student) > 0)
+            .collect(Collector.of(GradeReport.RunningStats::new,
+                                  (stats, student) -> stats.add(enrollmentService.getGPA(student)),
+                                  (a, b) -> {
+                                      a.merge(b);
+                                      return a;
+                                  }));
+                                  
+        return new GradeReport(overall, byCourse, byDepartment, bySemester, studentGPAs,
+                               (System.nanoTime() - start) / 1_000_000);
+    }
+    
+    // Per-thread Course -> counts[grade ordinal] maps, merged by adding the arrays
+    private static Collector<Enrollment, Map<Course, long[]>, Map<Course, long[]>> countByCourse() {
+        return Collector.of(
+            HashMap::new,
+            (map, enrollment) -> map.computeIfAbsent(enrollment.getCourse(), c -> new long[GRADE_COUNT])
+                                    [enrollment.getGrade().ordinal()]++,
+            (a, b) -> {
+                b.forEach((course, gradeCounts) -> {
+                    long[] into = a.computeIfAbsent(course, c -> new long[GRADE_COUNT]);
+                    for (int g = 0; g < GRADE_COUNT; g++) {
+                        into[g] += gradeCounts[g];
+                    }
+                });
+                return a;
+            });
+    }
+}
\ No newline at end of file
@@ -1,12 +1,56 @@
 package edu.ccrm.service;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 public interface Searchable<T> {
     List<T> search(Predicate<T> predicate);
     List<T> findAll();
     
+    /**
+     * Structured search that services can answer from their indexes.
+     * Like search(Predicate), it only returns active records unless the query constrains
+     * the ACTIVE field itself; this default just falls back to search(Predicate).
+     */
+    default List<T> search(Query<T> query) {
+        return search((Predicate<T>) query);
+    }
+    
+    /**
+     * Lazy view of the same rows as findAll(), for callers that should not materialize them
+     */
+    default Stream<T> stream() {
+        return findAll().stream();
+    }
+    
+    default Stream<T> stream(Query<T> query) {
+        return search(query).stream();
+    }
+    
+    /**
+     * Total order for requests that give no sort. Paging in it continues after the last
+     * row's key rather than at an offset, so concurrent changes cannot make pages skip
+     * or repeat rows; null leaves unsorted requests to plain offset paging.
+     */
+    default Comparator<? super T> getPagingOrder() {
+        return null;
+    }
+    
+    // Paged listings; only the requested window is ever collected
+    default Page<T> findPage(PageRequest<T> request) {
+        return Page.of(stream(), request.withDefaultSort(getPagingOrder()));
+    }
+    
+    default Page<T> findPage(Predicate<T> predicate, PageRequest<T> request) {
+        return Page.of(stream().filter(predicate), request.withDefaultSort(getPagingOrder()));
+    }
+    
+    default Page<T> findPage(Query<T> query, PageRequest<T> request) {
+        return Page.of(stream(query), request.withDefaultSort(getPagingOrder()));
+    }
+    
     // Default method demonstrating diamond problem resolution
     default String getSearchDescription() {
         return "Generic searchable interface";
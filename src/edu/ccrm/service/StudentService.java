@@ -7,36 +7,98 @@ import edu.ccrm.exception.DuplicateStudentException;
 import edu.ccrm.exception.StudentNotFoundException;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class StudentService implements Searchable<Student>, Persistable {
-    private List<Student> students;
+    // Queryable fields
+    public static final Query.Field<Student, String> ID = new Query.Field<>("id", Student::getId);
+    public static final Query.Field<Student, String> REG_NO = new Query.Field<>("regNo", Student::getRegNo);
+    public static final Query.Field<Student, String> NAME = new Query.Field<>("fullName", Student::getFullName);
+    public static final Query.Field<Student, String> EMAIL = new Query.Field<>("email", Student::getEmail);
+    public static final Query.Field<Student, Boolean> ACTIVE = new Query.Field<>("active", Student::isActive);
+    
+    // Total sort orders for paged listings (ties broken by id so keyset paging is stable)
+    public static final Comparator<Student> BY_ID = Comparator.comparing(Student::getId);
+    public static final Comparator<Student> BY_REG_NO = Comparator.comparing(Student::getRegNo).thenComparing(BY_ID);
+    public static final Comparator<Student> BY_NAME = Comparator.comparing(Student::getFullName).thenComparing(BY_ID);
+    
+    // Concurrent hash indexes over active students, safe for many registering threads
+    private Map<String, Student> activeById;
+    // Active students in registration order, so findAll and stream list them as the original
+    // list did; only changed inside activeById.compute for the student's id
+    private final Map<Long, Student> activeInOrder = new ConcurrentSkipListMap<>();
+    private final Map<String, Long> registrationSeq = new ConcurrentHashMap<>();
+    private final AtomicLong nextSeq = new AtomicLong();
+    // Ordered index over active ids for prefix and range queries; maintained with the above
+    private final NavigableMap<String, Student> activeByIdOrdered = new ConcurrentSkipListMap<>();
+    private Map<String, Student> activeByRegNo;
+    // Later active students sharing an indexed regNo, in registration order. Only changed
+    // inside activeByRegNo.compute for the same regNo, so the next one is promoted atomically.
+    private final Map<String, List<Student>> shadowedByRegNo = new ConcurrentHashMap<>();
+    private Queue<Student> inactiveStudents;
+    // Notified of every change, e.g. by a journal; copy-on-write since changes far outnumber registrations
+    private final List<MutationListener> listeners = new CopyOnWriteArrayList<>();
     
     public StudentService() {
-        this.students = new ArrayList<>();
+        this.activeById = new ConcurrentHashMap<>();
+        this.activeByRegNo = new ConcurrentHashMap<>();
+        this.inactiveStudents = new ConcurrentLinkedQueue<>();
     }
     
     public void addStudent(Student student) throws DuplicateStudentException {
-        if (findStudentById(student.getId()) != null) {
+        beforeMutation();
+        // A deactivated student no longer holds its id, so it never clashes with an active one
+        if (!student.isActive()) {
+            inactiveStudents.add(student);
+            listeners.forEach(l -> l.studentAdded(student));
+            afterMutation();
+            return;
+        }
+        // computeIfAbsent makes the duplicate check and the insert one atomic step
+        boolean[] registered = new boolean[1];
+        activeById.computeIfAbsent(student.getId(), id -> {
+            long seq = nextSeq.incrementAndGet();
+            registrationSeq.put(id, seq);
+            activeInOrder.put(seq, student);
+            activeByIdOrdered.put(id, student);
+            registered[0] = true;
+            return student;
+        });
+        if (!registered[0]) {
             throw new DuplicateStudentException("Student with ID " + student.getId() + " already exists");
         }
-        students.add(student);
+        // First registration wins, matching the old findFirst() lookup
+        activeByRegNo.compute(student.getRegNo(), (regNo, indexed) -> {
+            if (indexed == null) {
+                return student;
+            }
+            shadowedByRegNo.computeIfAbsent(regNo, k -> new CopyOnWriteArrayList<>()).add(student);
+            return indexed;
+        });
+        listeners.forEach(l -> l.studentAdded(student));
+        afterMutation();
     }
     
     public Student findStudentById(String id) {
-        return students.stream()
-                .filter(s -> s.getId().equals(id) && s.isActive())
-                .findFirst()
-                .orElse(null);
+        return activeById.get(id);
     }
     
     public Student findStudentByRegNo(String regNo) {
-        return students.stream()
-                .filter(s -> s.getRegNo().equals(regNo) && s.isActive())
-                .findFirst()
-                .orElse(null);
+        return activeByRegNo.get(regNo);
     }
     
     public void updateStudent(String id, String newName, String newEmail) throws StudentNotFoundException {
@@ -44,16 +106,68 @@ public class StudentService implements Searchable<Student>, Persistable {
         if (student == null) {
             throw new StudentNotFoundException("Student with ID " + id + " not found");
         }
-        student.setFullName(newName);
-        student.setEmail(newEmail);
+        beforeMutation();
+        synchronized (student) {
+            student.setFullName(newName);
+            student.setEmail(newEmail);
+            listeners.forEach(l -> l.studentUpdated(student));
+        }
+        afterMutation();
     }
     
     public void deactivateStudent(String id) throws StudentNotFoundException {
-        Student student = findStudentById(id);
+        beforeMutation();
+        Student[] removed = new Student[1];
+        activeById.computeIfPresent(id, (k, active) -> {
+            activeInOrder.remove(registrationSeq.remove(k));
+            activeByIdOrdered.remove(k);
+            removed[0] = active;
+            return null;
+        });
+        Student student = removed[0];
         if (student == null) {
             throw new StudentNotFoundException("Student with ID " + id + " not found");
         }
+        unindexRegNo(student);
         student.setActive(false);
+        inactiveStudents.add(student);
+        listeners.forEach(l -> l.studentDeactivated(student));
+        afterMutation();
+    }
+    
+    public void addMutationListener(MutationListener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+    
+    public void removeMutationListener(MutationListener listener) {
+        listeners.remove(listener);
+    }
+    
+    // The next active student with the same regNo, if any, takes over the index entry
+    private void unindexRegNo(Student student) {
+        activeByRegNo.computeIfPresent(student.getRegNo(), (regNo, indexed) -> {
+            List<Student> shadowed = shadowedByRegNo.get(regNo);
+            Student next = indexed;
+            if (indexed == student) {
+                next = shadowed != null ? shadowed.remove(0) : null;
+            } else if (shadowed != null) {
+                shadowed.remove(student);
+            }
+            if (shadowed != null && shadowed.isEmpty()) {
+                shadowedByRegNo.remove(regNo);
+            }
+            return next;
+        });
+    }
+    
+    // Gives listeners (e.g. a failed journal) the chance to refuse a change before it is applied
+    private void beforeMutation() {
+        listeners.forEach(MutationListener::beforeMutation);
+    }
+    
+    // Called once the change is applied, with no lock of this service held
+    private void afterMutation() {
+        listeners.forEach(MutationListener::afterMutation);
     }
     
     public List<Enrollment> getStudentEnrollments(String studentId) {
@@ -61,19 +175,140 @@ public class StudentService implements Searchable<Student>, Persistable {
         return student != null ? student.getEnrollments() : List.of();
     }
     
+    /**
+     * Snapshot of deactivated students
+     */
+    public List<Student> findInactive() {
+        return List.copyOf(inactiveStudents);
+    }
+    
+    public int getActiveCount() {
+        return activeById.size();
+    }
+    
     @Override
     public List<Student> search(Predicate<Student> predicate) {
-        return students.stream()
+        return stream()
                 .filter(predicate)
-                .filter(Student::isActive)
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Answer a structured query from the id/regNo indexes (id prefixes and ranges from the
+     * ordered id index) and the active/inactive split, scanning only when no indexed
+     * condition bounds the result
+     */
+    @Override
+    public List<Student> search(Query<Student> query) {
+        return stream(query).collect(Collectors.toList());
+    }
+    
+    @Override
+    public Stream<Student> stream() {
+        return activeInOrder.values().stream();
+    }
+    
+    @Override
+    public Stream<Student> stream(Query<Student> query) {
+        Collection<Student> candidates = Query.candidates(query, ACTIVE, this::lookup, this::lookupRange);
+        Stream<Student> source;
+        if (candidates != null) {
+            source = candidates.stream();
+        } else if (query.activeOnly(ACTIVE)) {
+            source = activeInOrder.values().stream();
+        } else {
+            source = Stream.concat(activeInOrder.values().stream(), inactiveStudents.stream());
+        }
+        return source.filter(query);
+    }
+    
+    private Collection<Student> lookup(Query.Field<Student, ?> field, Object value, boolean activeOnly) {
+        Student hit;
+        if (field == ID) {
+            hit = value != null ? activeById.get(value) : null;
+        } else if (field == REG_NO) {
+            hit = value != null ? activeByRegNo.get(value) : null;
+        } else if (field == ACTIVE) {
+            if (Boolean.TRUE.equals(value)) {
+                return activeInOrder.values();
+            }
+            return activeOnly ? List.of() : inactiveStudents;
+        } else {
+            return null;
+        }
+        
+        List<Student> result = new ArrayList<>();
+        if (hit != null) {
+            result.add(hit);
+            if (field == REG_NO) {
+                result.addAll(shadowedByRegNo.getOrDefault(value, List.of()));
+            }
+        }
+        if (!activeOnly) {
+            // Deactivated students are not hash-indexed; that list is expected to stay small
+            for (Student student : inactiveStudents) {
+                if (value != null && value.equals(field.get(student))) {
+                    result.add(student);
+                }
+            }
+        }
+        return result;
+    }
+    
+    private Collection<Student> lookupRange(Query.Field<Student, ?> field, Object from, Object to, 
+                                            boolean toInclusive, boolean activeOnly) {
+        if (field != ID) {
+            return null;
+        }
+        List<Student> result = new ArrayList<>(Query.between(activeByIdOrdered, from, to, toInclusive).values());
+        if (!activeOnly) {
+            // A superset is enough; the query filters the deactivated ones afterwards
+            result.addAll(inactiveStudents);
+        }
+        return result;
+    }
+    
+    // Ids never change, so pages continue after the last id seen
+    @Override
+    public Comparator<Student> getPagingOrder() {
+        return BY_ID;
+    }
+    
+    // Default-order pages read the ordered id index from the cursor on and stop after
+    // limit + 1 rows; other orders fall back to the bounded heap over every row
+    @Override
+    public Page<Student> findPage(PageRequest<Student> request) {
+        return findPage(student -> true, request);
+    }
+    
+    @Override
+    public Page<Student> findPage(Predicate<Student> predicate, PageRequest<Student> request) {
+        PageRequest<Student> ordered = request.withDefaultSort(BY_ID);
+        if (ordered.getSort() != BY_ID) {
+            return Searchable.super.findPage(predicate, request);
+        }
+        return Page.ofOrdered(inIdOrder(ordered.getAfter()).filter(predicate), ordered);
+    }
+    
+    // An indexed query has few candidates, which the heap orders cheaply
+    @Override
+    public Page<Student> findPage(Query<Student> query, PageRequest<Student> request) {
+        PageRequest<Student> ordered = request.withDefaultSort(BY_ID);
+        if (ordered.getSort() != BY_ID || !query.activeOnly(ACTIVE) ||
+                Query.candidates(query, ACTIVE, this::lookup, this::lookupRange) != null) {
+            return Searchable.super.findPage(query, request);
+        }
+        return Page.ofOrdered(inIdOrder(ordered.getAfter()).filter(query), ordered);
+    }
+    
+    private Stream<Student> inIdOrder(Student after) {
+        Map<String, Student> from = after != null ? activeByIdOrdered.tailMap(after.getId(), false) : activeByIdOrdered;
+        return from.values().stream();
+    }
+    
     @Override
     public List<Student> findAll() {
-        return students.stream()
-                .filter(Student::isActive)
-                .collect(Collectors.toList());
+        return new ArrayList<>(activeInOrder.values());
     }
     
     @Override
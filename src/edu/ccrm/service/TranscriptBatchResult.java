@@ -0,0 +1,40 @@
+package edu.ccrm.service;
+
+/**
+ * Outcome of a bulk transcript run: how much was rendered and how fast
+ */
+public class TranscriptBatchResult {
+    private final int transcripts;
+    private final long characters;
+    private final long elapsedNanos;
+    private final int parallelism;
+    
+    public TranscriptBatchResult(int transcripts, long characters, long elapsedNanos, int parallelism) {
+        this.transcripts = transcripts;
+        this.characters = characters;
+        this.elapsedNanos = elapsedNanos;
+        this.parallelism = parallelism;
+    }
+    
+    // Getters
+    public int getTranscripts() { return transcripts; }
+    public long getCharacters() { return characters; }
+    public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+    public int getParallelism() { return parallelism; }
+    
+    public double getTranscriptsPerSecond() {
+        return elapsedNanos > 0 ? transcripts * 1e9 / elapsedNanos : 0.0;
+    }
+    
+    public double getCharactersPerSecond() {
+        return elapsedNanos > 0 ? characters * 1e9 / elapsedNanos : 0.0;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("TranscriptBatchResult{transcripts=%d, chars=%d, elapsedMs=%d, " +
+                           "transcriptsPerSec=%.0f, charsPerSec=%.0f, parallelism=%d}",
+                           transcripts, characters, getElapsedMillis(),
+                           getTranscriptsPerSecond(), getCharactersPerSecond(), parallelism);
+    }
+}
\ No newline at end of file
@@ -2,17 +2,192 @@ package edu.ccrm.service;
 
 import edu.ccrm.domain.Student;
 import edu.ccrm.domain.Transcript;
+import edu.ccrm.exception.StudentNotFoundException;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Builds transcripts one at a time or for a whole cohort at once.
+ * Bulk runs split the students (ordered by registration number) into chunks that are
+ * built and rendered in parallel on a fork-join pool. Each chunk renders into a
+ * StringBuilder that is reused for the next chunk, so a batch allocates a handful of
+ * buffers rather than one per transcript.
+ */
 public class TranscriptService {
+    private static final int STUDENTS_PER_CHUNK = 64;
+    
     private final EnrollmentService enrollmentService;
     private final StudentService studentService;
-
+    private final ForkJoinPool pool;
+    
     // This constructor matches the call from CLIInterface
     public TranscriptService(EnrollmentService enrollmentService, StudentService studentService) {
+        this(enrollmentService, studentService, ForkJoinPool.commonPool());
+    }
+    
+    public TranscriptService(EnrollmentService enrollmentService, StudentService studentService, ForkJoinPool pool) {
         this.enrollmentService = enrollmentService;
         this.studentService = studentService;
+        this.pool = pool;
+    }
+    
+    public Transcript generateTranscript(String studentId) throws StudentNotFoundException {
+        Student student = studentService.findStudentById(studentId);
+        if (student == null) {
+            throw new StudentNotFoundException("Student with ID " + studentId + " not found");
+        }
+        return generateTranscript(student);
+    }
+    
+    public Transcript generateTranscript(Student student) {
+        return new Transcript.Builder()
+                .student(student)
+                .enrollments(enrollmentService.getEnrollmentsByStudent(student))
+                .build();
+    }
+    
+    /**
+     * Write one file per matching active student, named after the student id.
+     * Fails before writing anything if two students would map to the same file name.
+     * @param filter students to include, or null for all
+     */
+    public TranscriptBatchResult writeTranscripts(Predicate<Student> filter, Path outputDirectory) throws IOException {
+        Files.createDirectories(outputDirectory);
+        long start = System.nanoTime();
+        List<List<Student>> chunks = chunks(filter);
+        // Chunks write in parallel, so a shared name would silently overwrite another transcript.
+        // Compared ignoring case, as the file system may.
+        Set<String> names = new HashSet<>();
+        for (List<Student> chunk : chunks) {
+            for (Student student : chunk) {
+                if (!names.add(fileName(student).toLowerCase(Locale.ROOT))) {
+                    throw new IOException("Transcript file name " + fileName(student) + " of student " +
+                                          student.getId() + " is already used by another student");
+                }
+            }
+        }
+        
+        List<ForkJoinTask<Long>> tasks = new ArrayList<>(chunks.size());
+        for (List<Student> chunk : chunks) {
+            tasks.add(pool.submit(() -> {
+                StringBuilder buffer = new StringBuilder(4096);
+                long characters = 0;
+                for (Student student : chunk) {
+                    buffer.setLength(0);
+                    generateTranscript(student).render(buffer);
+                    Path file = outputDirectory.resolve(fileName(student));
+                    try (Writer out = new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8)) {
+                        out.append(buffer);
+                    }
+                    characters += buffer.length();
+                }
+                return characters;
+            }));
+        }
+        
+        long characters = 0;
+        for (ForkJoinTask<Long> task : tasks) {
+            characters += join(task);
+        }
+        return result(chunks, characters, start);
     }
     
-    // public Transcript generateTranscript(String studentId) { ... }
-    // ...
+    /**
+     * Write the transcripts of all matching active students to one stream, in registration
+     * number order. Chunks render ahead in parallel, at most a few per worker at a time.
+     * @param filter students to include, or null for all
+     */
+    public TranscriptBatchResult writeTranscripts(Predicate<Student> filter, Writer out) throws IOException {
+        long start = System.nanoTime();
+        List<List<Student>> chunks = chunks(filter);
+        int window = Math.max(2, pool.getParallelism() * 2);
+        ConcurrentLinkedQueue<StringBuilder> buffers = new ConcurrentLinkedQueue<>();
+        Deque<ForkJoinTask<StringBuilder>> inFlight = new ArrayDeque<>();
+        
+        long characters = 0;
+        for (List<Student> chunk : chunks) {
+            if (inFlight.size() >= window) {
+                characters += drain(inFlight.removeFirst(), out, buffers);
+            }
+            inFlight.addLast(pool.submit(() -> {
+                StringBuilder buffer = buffers.poll();
+                if (buffer == null) {
+                    buffer = new StringBuilder(STUDENTS_PER_CHUNK * 1024);
+                }
+                for (Student student : chunk) {
+                    generateTranscript(student).render(buffer);
+                    buffer.append('\n');
+                }
+                return buffer;
+            }));
+        }
+        while (!inFlight.isEmpty()) {
+            characters += drain(inFlight.removeFirst(), out, buffers);
+        }
+        out.flush();
+        return result(chunks, characters, start);
+    }
+    
+    // Writes a finished chunk and hands its buffer back for reuse
+    private static int drain(ForkJoinTask<StringBuilder> task, Writer out, ConcurrentLinkedQueue<StringBuilder> buffers)
+            throws IOException {
+        StringBuilder buffer = join(task);
+        int length = buffer.length();
+        out.append(buffer);
+        buffer.setLength(0);
+        buffers.offer(buffer);
+        return length;
+    }
+    
+    private List<List<Student>> chunks(Predicate<Student> filter) {
+        List<Student> students = studentService.stream()
+                .filter(filter != null ? filter : s -> true)
+                .sorted(StudentService.BY_REG_NO)
+                .collect(Collectors.toList());
+        List<List<Student>> chunks = new ArrayList<>((students.size() + STUDENTS_PER_CHUNK - 1) / STUDENTS_PER_CHUNK);
+        for (int i = 0; i < students.size(); i += STUDENTS_PER_CHUNK) {
+            chunks.add(students.subList(i, Math.min(students.size(), i + STUDENTS_PER_CHUNK)));
+        }
+        return chunks;
+    }
+    
+    private TranscriptBatchResult result(List<List<Student>> chunks, long characters, long start) {
+        int transcripts = chunks.stream().mapToInt(List::size).sum();
+        return new TranscriptBatchResult(transcripts, characters, System.nanoTime() - start, pool.getParallelism());
+    }
+    
+    // Ids are unique among active students; sanitizing can still merge two, which the caller checks
+    private static String fileName(Student student) {
+        return "transcript-" + student.getId().replaceAll("[^A-Za-z0-9._-]", "_") + ".txt";
+    }
+    
+    // Rendering runs in pool tasks, whose checked exceptions come back wrapped
+    private static <T> T join(ForkJoinTask<T> task) throws IOException {
+        try {
+            return task.join();
+        } catch (RuntimeException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw e;
+        }
+    }
 }
\ No newline at end of file
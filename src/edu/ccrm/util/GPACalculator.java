@@ -2,10 +2,10 @@ package edu.ccrm.util;
 
 import edu.ccrm.domain.Enrollment;
 import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Student;
 
 import java.util.List;
 import java.util.DoubleSummaryStatistics;
-import java.util.stream.Collectors;
 
 public class GPACalculator {
     
@@ -14,23 +14,18 @@ public class GPACalculator {
             return 0.0;
         }
         
-        List<Enrollment> gradedEnrollments = enrollments.stream()
-                .filter(e -> e.getGrade() != Grade.NOT_GRADED)
-                .collect(Collectors.toList());
-        
-        if (gradedEnrollments.isEmpty()) {
-            return 0.0;
+        // One pass, no intermediate list of graded enrollments
+        double totalPoints = 0.0;
+        int totalCredits = 0;
+        for (Enrollment e : enrollments) {
+            if (e.getGrade() != Grade.NOT_GRADED) {
+                int credits = e.getCourse().getCredits();
+                totalPoints += e.getGrade().getPoints() * credits;
+                totalCredits += credits;
+            }
         }
         
-        double totalPoints = gradedEnrollments.stream()
-                .mapToDouble(e -> e.getGrade().getPoints() * e.getCourse().getCredits())
-                .sum();
-                
-        int totalCredits = gradedEnrollments.stream()
-                .mapToInt(e -> e.getCourse().getCredits())
-                .sum();
-                
-        return totalPoints / totalCredits;
+        return totalCredits > 0 ? totalPoints / totalCredits : 0.0;
     }
     
     public static DoubleSummaryStatistics getGPAStatistics(List<Enrollment> enrollments) {
@@ -54,4 +49,46 @@ public class GPACalculator {
                     .average()
                     .orElse(0.0);
         };
+    
+    /**
+     * Computes the GPA of every student in a list, indexed like the list
+     */
+    public interface BatchStrategy {
+        double[] calculateAll(List<Student> students);
+    }
+    
+    /** calculateGPA once per student */
+    public static final BatchStrategy PER_STUDENT = students -> {
+        double[] gpas = new double[students.size()];
+        for (int i = 0; i < gpas.length; i++) {
+            gpas[i] = calculateGPA(students.get(i).getEnrollments());
+        }
+        return gpas;
+    };
+    
+    /**
+     * Packs the enrollments into primitive arrays and runs GPAKernel over them in parallel.
+     * Packing costs about one per-student pass, so this pays off on multi-core machines;
+     * callers that recompute often should keep a GPAKernel and call computeAll directly.
+     */
+    public static final BatchStrategy PRIMITIVE_KERNEL = students -> GPAKernel.of(students).computeAll();
+    
+    private static volatile BatchStrategy batchStrategy = PER_STUDENT;
+    
+    public static BatchStrategy getBatchStrategy() { return batchStrategy; }
+    
+    public static void setBatchStrategy(BatchStrategy strategy) {
+        if (strategy == null) {
+            throw new IllegalArgumentException("Batch strategy cannot be null");
+        }
+        batchStrategy = strategy;
+    }
+    
+    /**
+     * GPA of every student with the selected batch strategy; both built-in strategies
+     * give results identical to calculateGPA
+     */
+    public static double[] calculateGPAs(List<Student> students) {
+        return batchStrategy.calculateAll(students);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,156 @@
+package edu.ccrm.util;
+
+import edu.ccrm.domain.Enrollment;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Student;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Batch GPA over flat primitive arrays.
+ * Enrollments are packed student by student: rows offsets[s] to offsets[s + 1] belong to
+ * student s, and each row is a grade ordinal and a credit count. The kernel reads grade
+ * points from a table indexed by ordinal and uses a 0/1 weight instead of a branch for
+ * ungraded rows. It writes each student's GPA straight into the output array, so a run
+ * allocates nothing per student. Student ranges are split across a fork-join pool.
+ * Rows are summed in enrollment order, so results equal GPACalculator.calculateGPA.
+ */
+public class GPAKernel {
+    private static final Grade[] GRADES = Grade.values();
+    private static final double[] POINTS = new double[GRADES.length];
+    // 1 for grades that count toward GPA, 0 for NOT_GRADED
+    private static final int[] GRADED = new int[GRADES.length];
+    static {
+        for (Grade grade : GRADES) {
+            boolean graded = grade != Grade.NOT_GRADED;
+            POINTS[grade.ordinal()] = graded ? grade.getPoints() : 0.0;
+            GRADED[grade.ordinal()] = graded ? 1 : 0;
+        }
+    }
+    
+    // Students per leaf task; small enough to balance, large enough to amortize the task
+    private static final int LEAF_STUDENTS = 2048;
+    
+    private final int[] offsets;
+    private final byte[] grades;
+    private final int[] credits;
+    
+    public GPAKernel(int[] offsets, byte[] grades, int[] credits) {
+        if (offsets.length == 0 || offsets[0] != 0 || offsets[offsets.length - 1] != grades.length ||
+                grades.length != credits.length) {
+            throw new IllegalArgumentException("Offsets must run from 0 to the row count of grades and credits");
+        }
+        for (int s = 1; s < offsets.length; s++) {
+            if (offsets[s] < offsets[s - 1]) {
+                throw new IllegalArgumentException("Offsets must not decrease at student " + s);
+            }
+        }
+        for (byte grade : grades) {
+            if (grade < 0 || grade >= GRADES.length) {
+                throw new IllegalArgumentException("Invalid grade ordinal: " + grade);
+            }
+        }
+        this.offsets = offsets;
+        this.grades = grades;
+        this.credits = credits;
+    }
+    
+    /**
+     * Pack the students' current enrollments, reading each course's credits once per row
+     */
+    public static GPAKernel of(List<Student> students) {
+        List<List<Enrollment>> snapshots = new ArrayList<>(students.size());
+        int[] offsets = new int[students.size() + 1];
+        for (int s = 0; s < students.size(); s++) {
+            List<Enrollment> enrollments = students.get(s).getEnrollments();
+            snapshots.add(enrollments);
+            offsets[s + 1] = offsets[s] + enrollments.size();
+        }
+        byte[] grades = new byte[offsets[students.size()]];
+        int[] credits = new int[grades.length];
+        int row = 0;
+        for (List<Enrollment> enrollments : snapshots) {
+            for (Enrollment e : enrollments) {
+                grades[row] = (byte) e.getGrade().ordinal();
+                credits[row] = e.getCourse().getCredits();
+                row++;
+            }
+        }
+        return new GPAKernel(offsets, grades, credits);
+    }
+    
+    public int getStudentCount() {
+        return offsets.length - 1;
+    }
+    
+    public int getRowCount() {
+        return grades.length;
+    }
+    
+    /**
+     * GPA of every student, indexed like the packing order, on the common pool
+     */
+    public double[] computeAll() {
+        double[] out = new double[getStudentCount()];
+        computeAll(out, ForkJoinPool.commonPool());
+        return out;
+    }
+    
+    public void computeAll(double[] out, ForkJoinPool pool) {
+        if (out.length < getStudentCount()) {
+            throw new IllegalArgumentException("Output holds " + out.length + " of " + getStudentCount() + " students");
+        }
+        if (getStudentCount() <= LEAF_STUDENTS) {
+            compute(0, getStudentCount(), out);
+        } else {
+            pool.invoke(new RangeTask(0, getStudentCount(), out));
+        }
+    }
+    
+    /**
+     * Serial kernel over students [from, to)
+     */
+    public void compute(int from, int to, double[] out) {
+        int[] offsets = this.offsets;
+        byte[] grades = this.grades;
+        int[] credits = this.credits;
+        for (int s = from; s < to; s++) {
+            double points = 0.0;
+            int gradedCredits = 0;
+            for (int row = offsets[s], end = offsets[s + 1]; row < end; row++) {
+                int grade = grades[row];
+                int weighted = credits[row] * GRADED[grade];
+                points += POINTS[grade] * weighted;
+                gradedCredits += weighted;
+            }
+            out[s] = gradedCredits > 0 ? points / gradedCredits : 0.0;
+        }
+    }
+    
+    private final class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final int from;
+        private final int to;
+        private final double[] out;
+        
+        RangeTask(int from, int to, double[] out) {
+            this.from = from;
+            this.to = to;
+            this.out = out;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_STUDENTS) {
+                GPAKernel.this.compute(from, to, out);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, middle, out), new RangeTask(middle, to, out));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,73 @@
+package edu.ccrm.util;
+
+import java.util.AbstractList;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list snapshot that appends in amortized constant time.
+ * A snapshot is a prefix of a backing array that grows by doubling. Appending writes
+ * the slot just past the snapshot and returns a longer snapshot over the same array,
+ * so snapshots already handed out never see the change. A slot some other snapshot
+ * already took is never overwritten: appending there copies the array instead.
+ * Appends to snapshots sharing an array must not run concurrently (e.g. hold a lock).
+ */
+public final class SnapshotList<T> extends AbstractList<T> implements RandomAccess {
+    private static final SnapshotList<?> EMPTY = new SnapshotList<>(new Object[0], 0);
+    private static final int INITIAL_CAPACITY = 4;
+    
+    private final Object[] elements;
+    private final int size;
+    
+    private SnapshotList(Object[] elements, int size) {
+        this.elements = elements;
+        this.size = size;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public static <T> SnapshotList<T> empty() {
+        return (SnapshotList<T>) EMPTY;
+    }
+    
+    /**
+     * This snapshot followed by the item; this snapshot itself is unchanged
+     */
+    public SnapshotList<T> append(T item) {
+        Objects.requireNonNull(item, "Snapshot elements cannot be null");
+        Object[] array = elements;
+        if (size == array.length || array[size] != null) {
+            // Only this snapshot's own prefix is carried over
+            array = new Object[Math.max(INITIAL_CAPACITY, size * 2)];
+            System.arraycopy(elements, 0, array, 0, size);
+        }
+        array[size] = item;
+        return new SnapshotList<>(array, size + 1);
+    }
+    
+    /**
+     * This snapshot without the first occurrence of the item, copied into a new array;
+     * this snapshot itself when the item is not in it
+     */
+    public SnapshotList<T> without(Object item) {
+        int index = indexOf(item);
+        if (index < 0) {
+            return this;
+        }
+        Object[] array = new Object[Math.max(INITIAL_CAPACITY, size - 1)];
+        System.arraycopy(elements, 0, array, 0, index);
+        System.arraycopy(elements, index + 1, array, index, size - index - 1);
+        return new SnapshotList<>(array, size - 1);
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        Objects.checkIndex(index, size);
+        return (T) elements[index];
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+}
\ No newline at end of file